@@ -0,0 +1,85 @@
+package com.example.goodreads.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Porównuje dwa wyniki JMH (format JSON) i kończy się kodem 1, gdy któryś benchmark zwolnił o więcej niż próg.
+ * <pre>
+ * mvn -B -Pbenchmark test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.goodreads.benchmark.BenchmarkDiff \
+ *     -Dexec.args="baseline.json target/jmh/jmh-0.0.1-SNAPSHOT.json 10"
+ * </pre>
+ * Argumenty: wynik bazowy, wynik bieżący, dopuszczalne pogorszenie w procentach (domyślnie 10).
+ */
+public class BenchmarkDiff {
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Użycie: <baseline.json> <current.json> [próg%=10]");
+			System.exit(2);
+		}
+		double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10.0;
+		Map<String, JsonNode> baseline = read(new File(args[0]));
+		Map<String, JsonNode> current = read(new File(args[1]));
+
+		int regressions = 0;
+		System.out.printf("%-90s %14s %14s %9s%n", "benchmark", "bazowy", "bieżący", "zmiana");
+		for (Map.Entry<String, JsonNode> entry : current.entrySet()) {
+			JsonNode before = baseline.get(entry.getKey());
+			JsonNode after = entry.getValue();
+			double afterScore = after.path("primaryMetric").path("score").asDouble();
+			String unit = after.path("primaryMetric").path("scoreUnit").asText();
+			if (before == null) {
+				System.out.printf("%-90s %14s %14.3f %9s  %s%n", entry.getKey(), "-", afterScore, "nowy", unit);
+				continue;
+			}
+			double beforeScore = before.path("primaryMetric").path("score").asDouble();
+			double change = beforeScore == 0 ? 0 : (afterScore - beforeScore) / beforeScore * 100;
+			// W trybie przepustowości spadek wyniku jest pogorszeniem, w pozostałych - wzrost
+			double slowdown = "thrpt".equals(after.path("mode").asText()) ? -change : change;
+			boolean regressed = slowdown > threshold;
+			if (regressed) {
+				regressions++;
+			}
+			System.out.printf("%-90s %14.3f %14.3f %+8.1f%%  %s%s%n", entry.getKey(), beforeScore, afterScore,
+					change, unit, regressed ? "  <- pogorszenie" : "");
+		}
+
+		if (regressions > 0) {
+			System.out.printf("Benchmarki z pogorszeniem powyżej %.1f%%: %d%n", threshold, regressions);
+			System.exit(1);
+		}
+	}
+
+	private static Map<String, JsonNode> read(File file) throws IOException {
+		Map<String, JsonNode> results = new LinkedHashMap<>();
+		for (JsonNode result : new ObjectMapper().readTree(file)) {
+			results.put(key(result), result);
+		}
+		return results;
+	}
+
+	private static String key(JsonNode result) {
+		StringBuilder key = new StringBuilder(result.path("benchmark").asText());
+		JsonNode params = result.path("params");
+		if (params.isObject()) {
+			key.append(' ');
+			Iterator<Map.Entry<String, JsonNode>> fields = params.fields();
+			while (fields.hasNext()) {
+				Map.Entry<String, JsonNode> field = fields.next();
+				key.append(field.getKey()).append('=').append(field.getValue().asText());
+				if (fields.hasNext()) {
+					key.append(',');
+				}
+			}
+		}
+		return key.toString();
+	}
+}
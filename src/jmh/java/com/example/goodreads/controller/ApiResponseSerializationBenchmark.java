@@ -0,0 +1,80 @@
+package com.example.goodreads.controller;
+
+import com.example.goodreads.config.JacksonConfig;
+import com.example.goodreads.dto.BookReadingStats;
+import com.example.goodreads.dto.BookSummary;
+import com.example.goodreads.dto.CursorPage;
+import com.example.goodreads.model.Book;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Serializacja strony listy książek i statystyki /average-readed. ObjectMapper budujemy jak Spring Boot -
+// znane moduły plus beany Module z JacksonConfig (Blackbird); blackbird=false to ten sam mapper bez nich
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ApiResponseSerializationBenchmark {
+
+	@Param({"10", "100", "1000"})
+	public int size;
+
+	@Param({"true", "false"})
+	public boolean blackbird;
+
+	private ObjectMapper objectMapper;
+	private ApiResponse booksResponse;
+	private List<BookReadingStats> statisticsRows;
+
+	@Setup
+	public void setUp() {
+		Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json();
+		if (blackbird) {
+			builder.modulesToInstall(new JacksonConfig().blackbirdModule());
+		}
+		objectMapper = builder.build();
+
+		List<BookSummary> books = new ArrayList<>(size);
+		statisticsRows = new ArrayList<>(size);
+		for (int i = 1; i <= size; i++) {
+			Book book = new Book();
+			book.setId((long) i);
+			book.setTitle("Tytuł " + i);
+			book.setAuthor("Autor " + (i % 50));
+			book.setDescription("Opis książki numer " + i);
+			book.setGenre("Powieść");
+			books.add(new BookSummary(book, i % 40, 1.0 + (i % 400) / 100.0, null));
+			statisticsRows.add(new BookReadingStats(book.getId(), book.getTitle(), book.getAuthor(),
+					i % 40, 1.0 + (i % 400) / 100.0));
+		}
+		booksResponse = new ApiResponse("Lista książek", new CursorPage<>(books, "MTAwMA"));
+	}
+
+	@Benchmark
+	public byte[] booksResponse() throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(booksResponse);
+	}
+
+	@Benchmark
+	public byte[] statisticsRows() throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(statisticsRows);
+	}
+}
@@ -0,0 +1,59 @@
+package com.example.goodreads.security;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Koszt mapowania tokenu na uprawnienia: ścieżka z cache kontra pełne wyliczenie przy każdym żądaniu
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtAuthConverterBenchmark {
+
+	private JwtAuthConverter converter;
+	private Jwt jwt;
+
+	@Setup
+	public void setUp() {
+		converter = new JwtAuthConverter(100);
+		ReflectionTestUtils.setField(converter, "principleAttribute", "preferred_username");
+		ReflectionTestUtils.setField(converter, "resourceId", "api");
+		Instant expiresAt = Instant.now().plusSeconds(3600);
+		jwt = Jwt.withTokenValue("benchmark-token")
+				.header("alg", "RS256")
+				.claim("preferred_username", "anna")
+				.claim("scope", "profile email")
+				.claim("resource_access", Map.of("api", Map.of("roles", List.of("client_user", "client_admin"))))
+				.issuedAt(expiresAt.minusSeconds(600))
+				.expiresAt(expiresAt)
+				.build();
+	}
+
+	@Benchmark
+	public AbstractAuthenticationToken convertCached() {
+		return converter.convert(jwt);
+	}
+
+	@Benchmark
+	public Object resolveUncached() {
+		return converter.resolve(jwt);
+	}
+}
@@ -0,0 +1,68 @@
+package com.example.goodreads.security;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Sprawdzenie roli maską bitową kontra dawne przeszukiwanie listy uprawnień po nazwie
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoleCheckBenchmark {
+
+	private List<GrantedAuthority> authorities;
+
+	// Kontekst bezpieczeństwa jest przypięty do wątku, dlatego stan ma zasięg Scope.Thread
+	@Setup
+	public void setUp() {
+		authorities = List.of(
+				new SimpleGrantedAuthority("SCOPE_profile"),
+				new SimpleGrantedAuthority("SCOPE_email"),
+				new SimpleGrantedAuthority(Role.CLIENT_USER.authority()));
+		Jwt jwt = Jwt.withTokenValue("benchmark-token")
+				.header("alg", "RS256")
+				.claim("preferred_username", "anna")
+				.issuedAt(Instant.now())
+				.expiresAt(Instant.now().plusSeconds(3600))
+				.build();
+		SecurityContextHolder.getContext().setAuthentication(
+				new RoleAwareAuthenticationToken(jwt, authorities, "anna", Role.maskOf(authorities)));
+	}
+
+	@TearDown
+	public void tearDown() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Benchmark
+	public boolean roleMask() {
+		return CurrentUser.hasRole(Role.CLIENT_USER);
+	}
+
+	@Benchmark
+	public boolean authorityScan() {
+		Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+		return authentication.getAuthorities().stream()
+				.anyMatch(authority -> authority.getAuthority().equals(Role.CLIENT_USER.authority()));
+	}
+}
@@ -0,0 +1,114 @@
+package com.example.goodreads.service;
+
+import com.example.goodreads.GoodreadsApplication;
+import com.example.goodreads.model.Book;
+import com.example.goodreads.model.Comment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ścieżki odczytu serwisu książek na kontekście aplikacji z bazą H2 (profil "test").
+ * Mierzy narzut aplikacji (cache, indeks, tabela statystyk) - czasy MySQL w produkcji będą inne.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookServiceBenchmark {
+
+	private static final int COMMENTS_PER_BOOK = 3;
+
+	@Param({"1000"})
+	public int books;
+
+	private ConfigurableApplicationContext context;
+	private BookService bookService;
+	private UsersBookService usersBookService;
+	private long[] bookIds;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		context = new SpringApplicationBuilder(GoodreadsApplication.class)
+				.profiles("test")
+				.properties("server.port=0",
+						"spring.jpa.properties.hibernate.generate_statistics=false",
+						"logging.level.root=WARN")
+				// Bez zapamiętywania wyników przez H2 - powtórzone zapytanie ma naprawdę się wykonać
+				.run("--spring.datasource.url=jdbc:h2:mem:goodreads;DB_CLOSE_DELAY=-1;OPTIMIZE_REUSE_RESULTS=FALSE");
+		bookService = context.getBean(BookService.class);
+		usersBookService = context.getBean(UsersBookService.class);
+		CommentService commentService = context.getBean(CommentService.class);
+
+		bookIds = new long[books];
+		for (int i = 0; i < books; i++) {
+			Book book = new Book();
+			book.setTitle("Tytuł " + i);
+			book.setAuthor("Autor " + (i % 50));
+			book.setDescription("Opis książki numer " + i);
+			book.setGenre("Powieść");
+			bookIds[i] = bookService.addBook(book).getId();
+			for (int c = 0; c < COMMENTS_PER_BOOK; c++) {
+				Comment comment = new Comment();
+				comment.setContent("Komentarz " + c);
+				comment.setRating(1 + (i + c) % 5);
+				commentService.addComment(bookIds[i], comment);
+			}
+		}
+		// Statystyki, ranking i indeks budujemy od razu, żeby nie mierzyć zapytań zastępczych
+		context.getBean(BookStatsService.class).backfill();
+		bookService.rebuildSearchIndex();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	private long randomBookId() {
+		return bookIds[ThreadLocalRandom.current().nextInt(bookIds.length)];
+	}
+
+	@Benchmark
+	public Object findBookById() {
+		return bookService.findBookById(randomBookId());
+	}
+
+	@Benchmark
+	public Object bookSummariesPage() {
+		return bookService.getBookSummariesPage(null, BookService.DEFAULT_PAGE_SIZE, false);
+	}
+
+	@Benchmark
+	public List<Book> findBooksByTitle() {
+		return bookService.findBooksByTitle("tytuł 12", BookService.DEFAULT_PAGE_SIZE);
+	}
+
+	@Benchmark
+	public Object topBooksByRating() {
+		return bookService.getTopBooks(RankingMetric.RATING, 10);
+	}
+
+	@Benchmark
+	public Object unreadShelfPage() {
+		return usersBookService.getUnreadBooks("anna", null, BookService.DEFAULT_PAGE_SIZE);
+	}
+}
@@ -0,0 +1,155 @@
+package com.example.goodreads.service;
+
+import com.example.goodreads.GoodreadsApplication;
+import com.example.goodreads.dto.BookReadingStats;
+import com.example.goodreads.repository.BookRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Liczba przeczytań i średnia ocena przed i po przepisaniu zapytania: dawne złączenie półek z komentarzami
+ * (czytelnicy x komentarze wierszy na książkę), podzapytania skorelowane i tabela statystyk.
+ * Dla 10 000 książek baza ma 1 mln komentarzy i 1 mln wpisów półek, więc złączenie liczy się minutami.
+ * Przed pomiarem sprawdzamy, że wszystkie warianty zwracają te same wyniki.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class ReadCountQueryBenchmark {
+
+	private static final int COMMENTS_PER_BOOK = 100;
+	private static final int READERS_PER_BOOK = 100;
+
+	// Dawna postać zapytania; COUNT(DISTINCT) zamiast COUNT(ub) tylko po to, żeby wynik dało się porównać -
+	// koszt złączenia czytelników z komentarzami zostaje ten sam
+	private static final String JOIN_QUERY = """
+			SELECT new com.example.goodreads.dto.BookReadingStats(b.id, b.title, b.author,
+			       COUNT(DISTINCT ub.id) AS readCount, AVG(c.rating) AS averageRating)
+			FROM Book b
+			LEFT JOIN UsersBook ub ON ub.book = b AND ub.status = com.example.goodreads.model.UsersBook.Status.READED
+			LEFT JOIN Comment c ON c.book = b
+			GROUP BY b.id, b.title, b.author
+			ORDER BY readCount DESC, averageRating DESC
+			""";
+
+	@Param({"1000", "10000"})
+	public int books;
+
+	private ConfigurableApplicationContext context;
+	private BookService bookService;
+	private BookRepository bookRepository;
+	private EntityManagerFactory entityManagerFactory;
+
+	@Setup(Level.Trial)
+	public void setUp() throws InterruptedException {
+		context = new SpringApplicationBuilder(GoodreadsApplication.class)
+				.profiles("test")
+				.properties("server.port=0",
+						"spring.jpa.properties.hibernate.generate_statistics=false",
+						"logging.level.root=WARN")
+				// H2 domyślnie zwraca zapamiętany wynik powtórzonego zapytania, gdy tabele się nie zmieniły;
+				// argument wiersza poleceń ma pierwszeństwo przed application-test.properties
+				.run("--spring.datasource.url=jdbc:h2:mem:goodreads;DB_CLOSE_DELAY=-1;OPTIMIZE_REUSE_RESULTS=FALSE");
+		bookService = context.getBean(BookService.class);
+		bookRepository = context.getBean(BookRepository.class);
+		entityManagerFactory = context.getBean(EntityManagerFactory.class);
+		BookStatsService bookStatsService = context.getBean(BookStatsService.class);
+
+		// Uzupełnianie statystyk przy starcie działa w tle; nie może wstawić pustych wierszy w trakcie ładowania danych
+		while (!bookStatsService.isReady()) {
+			Thread.sleep(10);
+		}
+
+		// Milion wierszy przez serwisy ładowałby się godzinami - wstawiamy je bezpośrednio w H2
+		JdbcTemplate jdbc = new JdbcTemplate(context.getBean(DataSource.class));
+		jdbc.update("INSERT INTO book (title, author, description, genre) "
+				+ "SELECT 'Tytuł ' || r.x, 'Autor ' || MOD(r.x, 50), 'Opis', 'Powieść' FROM SYSTEM_RANGE(1, ?) r", books);
+		jdbc.update("INSERT INTO comment (content, rating, book_id) "
+				+ "SELECT 'Komentarz ' || r.x, MOD(b.id * 7 + r.x * r.x, 5) + 1, b.id "
+				+ "FROM book b CROSS JOIN SYSTEM_RANGE(1, ?) r", COMMENTS_PER_BOOK);
+		jdbc.update("INSERT INTO users_book (username, book_id, status) "
+				+ "SELECT 'czytelnik' || r.x, b.id, CASE WHEN MOD(b.id + r.x, 3) = 0 THEN 'WANT_READ' ELSE 'READED' END "
+				+ "FROM book b CROSS JOIN SYSTEM_RANGE(1, ?) r WHERE MOD(b.id, 10) <> 0", READERS_PER_BOOK);
+		bookStatsService.backfill();
+
+		List<BookReadingStats> expected = subqueries();
+		requireSameResults("tabela statystyk", expected, statsTable());
+		requireSameResults("złączenie", expected, join());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		context.close();
+	}
+
+	@Benchmark
+	public List<BookReadingStats> join() {
+		EntityManager entityManager = entityManagerFactory.createEntityManager();
+		try {
+			return entityManager.createQuery(JOIN_QUERY, BookReadingStats.class).getResultList();
+		} finally {
+			entityManager.close();
+		}
+	}
+
+	@Benchmark
+	public List<BookReadingStats> subqueries() {
+		return bookRepository.findBooksWithReadCountAndAverageRating();
+	}
+
+	@Benchmark
+	public List<BookReadingStats> statsTable() {
+		return bookService.getBooksWithReadCountAndAverageRating();
+	}
+
+	private void requireSameResults(String variant, List<BookReadingStats> expected, List<BookReadingStats> actual) {
+		if (expected.size() != books || actual.size() != books) {
+			throw new IllegalStateException(variant + ": oczekiwano " + books + " wierszy, jest " + actual.size());
+		}
+		Map<Long, BookReadingStats> actualById = actual.stream()
+				.collect(Collectors.toMap(BookReadingStats::id, Function.identity()));
+		for (BookReadingStats row : expected) {
+			BookReadingStats other = actualById.get(row.id());
+			if (other == null || other.readCount() != row.readCount()
+					|| !sameAverage(row.averageRating(), other.averageRating())) {
+				throw new IllegalStateException(variant + ": inny wynik dla książki " + row.id()
+						+ ": " + row + " != " + other);
+			}
+		}
+	}
+
+	private static boolean sameAverage(Double expected, Double actual) {
+		if (expected == null || actual == null) {
+			return Objects.equals(expected, actual);
+		}
+		return Math.abs(expected - actual) < 1e-9;
+	}
+}
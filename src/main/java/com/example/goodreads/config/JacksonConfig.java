@@ -0,0 +1,16 @@
+package com.example.goodreads.config;
+
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class JacksonConfig {
+
+    // Blackbird zastępuje refleksję przy odczycie pól wygenerowanymi akcesorami (LambdaMetafactory);
+    // Spring Boot sam rejestruje w ObjectMapperze każdy bean typu Module
+    @Bean
+    public BlackbirdModule blackbirdModule() {
+        return new BlackbirdModule();
+    }
+}
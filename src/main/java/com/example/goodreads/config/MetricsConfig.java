@@ -0,0 +1,95 @@
+package com.example.goodreads.config;
+
+import com.example.goodreads.service.BookCache;
+import com.example.goodreads.service.CommentIngestionQueue;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class MetricsConfig implements WebMvcConfigurer {
+
+    private final QueryBudgetInterceptor queryBudgetInterceptor;
+
+    public MetricsConfig(QueryBudgetInterceptor queryBudgetInterceptor) {
+        this.queryBudgetInterceptor = queryBudgetInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(queryBudgetInterceptor);
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer queryCountingCustomizer() {
+        QueryCountingInterceptor interceptor = new QueryCountingInterceptor();
+        return properties -> {
+            properties.put(AvailableSettings.STATEMENT_INSPECTOR, interceptor);
+            properties.put(AvailableSettings.INTERCEPTOR, interceptor);
+        };
+    }
+
+    // Te same dane co w /api/metrics, ale w formacie do zbierania przez Prometheusa
+    @Bean
+    public MeterBinder goodreadsMeters(BookCache bookCache,
+                                       ObjectProvider<CommentIngestionQueue> commentIngestionQueue,
+                                       ObjectProvider<ConnectionAdmissionFilter> connectionAdmissionFilter) {
+        return registry -> {
+            Gauge.builder("goodreads.book.cache.size", bookCache, BookCache::size)
+                    .register(registry);
+            FunctionCounter.builder("goodreads.book.cache.requests", bookCache, cache -> cache.stats().hitCount())
+                    .tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("goodreads.book.cache.requests", bookCache, cache -> cache.stats().missCount())
+                    .tag("result", "miss")
+                    .register(registry);
+            FunctionCounter.builder("goodreads.book.cache.evictions", bookCache, cache -> cache.stats().evictionCount())
+                    .register(registry);
+
+            CommentIngestionQueue queue = commentIngestionQueue.getIfAvailable();
+            if (queue != null) {
+                Gauge.builder("goodreads.comment.queue.depth", queue, CommentIngestionQueue::depth)
+                        .register(registry);
+                Gauge.builder("goodreads.comment.queue.capacity", queue, CommentIngestionQueue::capacity)
+                        .register(registry);
+                Gauge.builder("goodreads.comment.queue.max.wait", queue, CommentIngestionQueue::maxQueueWaitMillis)
+                        .baseUnit("milliseconds")
+                        .register(registry);
+                FunctionCounter.builder("goodreads.comment.queue.comments", queue, CommentIngestionQueue::accepted)
+                        .tag("result", "accepted")
+                        .register(registry);
+                FunctionCounter.builder("goodreads.comment.queue.comments", queue, CommentIngestionQueue::rejected)
+                        .tag("result", "rejected")
+                        .register(registry);
+                FunctionCounter.builder("goodreads.comment.queue.comments", queue, CommentIngestionQueue::written)
+                        .tag("result", "written")
+                        .register(registry);
+                FunctionCounter.builder("goodreads.comment.queue.comments", queue, CommentIngestionQueue::dropped)
+                        .tag("result", "dropped")
+                        .register(registry);
+                FunctionCounter.builder("goodreads.comment.queue.comments", queue, CommentIngestionQueue::failed)
+                        .tag("result", "failed")
+                        .register(registry);
+                FunctionCounter.builder("goodreads.comment.queue.commits", queue, CommentIngestionQueue::commits)
+                        .register(registry);
+            }
+
+            ConnectionAdmissionFilter admission = connectionAdmissionFilter.getIfAvailable();
+            if (admission != null) {
+                Gauge.builder("goodreads.admission.in.flight", admission, ConnectionAdmissionFilter::inFlight)
+                        .register(registry);
+                Gauge.builder("goodreads.admission.waiting", admission, ConnectionAdmissionFilter::waiting)
+                        .register(registry);
+                FunctionCounter.builder("goodreads.admission.rejected", admission, ConnectionAdmissionFilter::rejected)
+                        .register(registry);
+            }
+        };
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.goodreads.config;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Budżet zapytań SQL endpointu (lub całego kontrolera), sprawdzany przez QueryBudgetInterceptor.
+// W testach ta sama adnotacja na metodzie testowej ogranicza zapytania całego testu (QueryBudgetExtension).
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface QueryBudget {
+
+    int UNLIMITED = Integer.MAX_VALUE;
+    int DEFAULT_REPEATS = -1;
+
+    // Maksymalna liczba zapytań na żądanie
+    int value() default UNLIMITED;
+
+    // Ile razy może się powtórzyć to samo zapytanie (różniące się tylko parametrami);
+    // domyślnie goodreads.query-budget.max-repeated-statements
+    int maxRepeats() default DEFAULT_REPEATS;
+}
@@ -0,0 +1,7 @@
+package com.example.goodreads.config;
+
+public class QueryBudgetExceededException extends RuntimeException {
+    public QueryBudgetExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.goodreads.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Nakłada @QueryBudget na liczniki żądania otwarte przez QueryMetricsFilter. Powtórzenia tego samego zapytania
+// (typowe N+1 na leniwych asocjacjach) są wykrywane na każdym endpoincie, limit liczby zapytań - tylko tam,
+// gdzie go zadeklarowano. W trybie warn przekroczenie jest logowane, w trybie fail przerywa żądanie.
+@Slf4j
+@Component
+public class QueryBudgetInterceptor implements HandlerInterceptor {
+
+    private final QueryBudgetMode mode;
+    private final int defaultMaxRepeats;
+    private final Map<Method, Limits> limits = new ConcurrentHashMap<>();
+
+    public QueryBudgetInterceptor(@Value("${goodreads.query-budget.mode:warn}") String mode,
+                                  @Value("${goodreads.query-budget.max-repeated-statements:5}") int defaultMaxRepeats) {
+        this.mode = QueryBudgetMode.fromParam(mode);
+        this.defaultMaxRepeats = defaultMaxRepeats;
+    }
+
+    @Override
+    public boolean preHandle(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                             @NonNull Object handler) {
+        RequestQueryStats stats = RequestQueryStats.current();
+        if (mode == QueryBudgetMode.OFF || stats == null || !(handler instanceof HandlerMethod handlerMethod)) {
+            return true;
+        }
+        Limits handlerLimits = limits.computeIfAbsent(handlerMethod.getMethod(), method -> limitsOf(handlerMethod));
+        stats.limit(handlerLimits.maxStatements(), handlerLimits.maxRepeats(), mode == QueryBudgetMode.FAIL);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                @NonNull Object handler, Exception ex) {
+        RequestQueryStats stats = RequestQueryStats.current();
+        if (mode == QueryBudgetMode.WARN && stats != null && stats.violation() != null) {
+            log.warn("Przekroczony budżet zapytań {} {}: {}", request.getMethod(),
+                    request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE), stats.violation());
+        }
+    }
+
+    private Limits limitsOf(HandlerMethod handlerMethod) {
+        QueryBudget budget = AnnotatedElementUtils.findMergedAnnotation(handlerMethod.getMethod(), QueryBudget.class);
+        if (budget == null) {
+            budget = AnnotatedElementUtils.findMergedAnnotation(handlerMethod.getBeanType(), QueryBudget.class);
+        }
+        if (budget == null) {
+            return new Limits(QueryBudget.UNLIMITED, defaultMaxRepeats);
+        }
+        int maxRepeats = budget.maxRepeats() == QueryBudget.DEFAULT_REPEATS ? defaultMaxRepeats : budget.maxRepeats();
+        return new Limits(budget.value(), maxRepeats);
+    }
+
+    private record Limits(int maxStatements, int maxRepeats) {
+    }
+}
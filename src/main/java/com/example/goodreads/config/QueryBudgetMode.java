@@ -0,0 +1,17 @@
+package com.example.goodreads.config;
+
+import java.util.Locale;
+
+public enum QueryBudgetMode {
+    OFF,
+    WARN,
+    FAIL;
+
+    public static QueryBudgetMode fromParam(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Niepoprawny tryb budżetu zapytań. Dozwolone: off, warn, fail.");
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.goodreads.config;
+
+import org.hibernate.Interceptor;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.type.Type;
+
+// Podpięty do Hibernate jako StatementInspector i Interceptor - zlicza zapytania i wczytane encje bieżącego żądania
+public class QueryCountingInterceptor implements StatementInspector, Interceptor {
+
+    @Override
+    public String inspect(String sql) {
+        RequestQueryStats.statementPrepared(sql);
+        return sql;
+    }
+
+    @Override
+    public boolean onLoad(Object entity, Object id, Object[] state, String[] propertyNames, Type[] types) {
+        RequestQueryStats.entityLoaded();
+        return false;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.goodreads.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+@Configuration
+public class ReactiveReadConfig {
+
+    // Blokujące zapytania JPA ścieżki reaktywnej wykonuje tylu wątków, ile jest połączeń w puli;
+    // oczekujący klienci nie zajmują wątków, tylko miejsce w kolejce schedulera
+    @Bean(destroyMethod = "dispose")
+    public Scheduler bookReadScheduler(@Value("${spring.datasource.hikari.maximum-pool-size:10}") int threads,
+                                       @Value("${goodreads.reactive.queue-size:10000}") int queueSize) {
+        return Schedulers.newBoundedElastic(threads, queueSize, "book-reads");
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.goodreads.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Podział odczytów i zapisów, włączany ustawieniem goodreads.datasource.replica.urls.
+// spring.datasource.* opisuje primary; repliki dostają te same dane logowania, chyba że podano własne.
+@Configuration
+@ConditionalOnProperty(name = "goodreads.datasource.replica.urls")
+public class ReadReplicaConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean(destroyMethod = "close")
+    public ReadReplicas readReplicas(DataSourceProperties properties, MeterRegistry meterRegistry,
+                                     @Value("${goodreads.datasource.replica.urls}") List<String> urls,
+                                     @Value("${goodreads.datasource.replica.username:${spring.datasource.username:}}") String username,
+                                     @Value("${goodreads.datasource.replica.password:${spring.datasource.password:}}") String password,
+                                     @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize) {
+        Map<String, HikariDataSource> replicas = new LinkedHashMap<>();
+        for (String url : urls) {
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + (replicas.size() + 1));
+            replica.setJdbcUrl(url.trim());
+            replica.setDriverClassName(properties.determineDriverClassName());
+            replica.setUsername(username);
+            replica.setPassword(password);
+            replica.setMaximumPoolSize(poolSize);
+            replica.setReadOnly(true);
+            // Jedna migawka na transakcję - ETag i dane odpowiedzi czytane razem muszą się zgadzać
+            replica.setTransactionIsolation("TRANSACTION_REPEATABLE_READ");
+            replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            replicas.put(replica.getPoolName(), replica);
+        }
+        return new ReadReplicas(replicas);
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public ReplicaLagMonitor replicaLagMonitor(HikariDataSource primaryDataSource, ReadReplicas readReplicas,
+                                               @Value("${goodreads.datasource.replica.max-lag:2s}") Duration maxLag,
+                                               @Value("${goodreads.datasource.replica.lag-check-interval:1s}") Duration interval) {
+        return new ReplicaLagMonitor(primaryDataSource, readReplicas.dataSources(), maxLag, interval);
+    }
+
+    @Bean
+    public ReadYourWrites readYourWrites(@Value("${goodreads.datasource.read-your-writes-window:5s}") Duration window) {
+        return new ReadYourWrites(window);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReadReplicas readReplicas,
+                                 ReplicaLagMonitor replicaLagMonitor, ReadYourWrites readYourWrites) {
+        return new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(
+                primaryDataSource, readReplicas.dataSources(), replicaLagMonitor, readYourWrites));
+    }
+
+    // Domyślnie Hibernate trzyma połączenie do końca sesji (przy open-in-view - całego żądania), więc pierwsza
+    // transakcja wybierałaby bazę dla wszystkich kolejnych. Zwalniając je po transakcji, każda wybiera na nowo.
+    @Bean
+    public HibernatePropertiesCustomizer releaseConnectionAfterTransaction() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                "DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION");
+    }
+
+    @Bean
+    public MeterBinder replicaLagMeters(ReadReplicas readReplicas, ReplicaLagMonitor replicaLagMonitor) {
+        return registry -> readReplicas.dataSources().keySet().forEach(replica ->
+                Gauge.builder("goodreads.datasource.replica.lag", replicaLagMonitor, monitor -> monitor.lagMillis(replica))
+                        .tag("replica", replica)
+                        .baseUnit("milliseconds")
+                        .register(registry));
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.goodreads.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.util.Map;
+
+// Pule połączeń replik w kolejności z konfiguracji (replica-1, replica-2, ...)
+public record ReadReplicas(Map<String, HikariDataSource> dataSources) {
+
+    public HikariDataSource get(String name) {
+        return dataSources.get(name);
+    }
+
+    public void close() {
+        dataSources.values().forEach(HikariDataSource::close);
+    }
+}
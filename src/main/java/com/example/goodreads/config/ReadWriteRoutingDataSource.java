@@ -0,0 +1,54 @@
+package com.example.goodreads.config;
+
+import com.example.goodreads.security.CurrentUser;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Transakcje tylko do odczytu trafiają po kolei do zdrowych replik, wszystko inne do primary.
+// Klucz jest wybierany przy pobraniu fizycznego połączenia - za LazyConnectionDataSourceProxy dopiero przy pierwszym
+// zapytaniu, gdy flaga readOnly transakcji jest już ustawiona.
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMARY = "primary";
+
+    private final ReplicaLagMonitor lagMonitor;
+    private final ReadYourWrites readYourWrites;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    public ReadWriteRoutingDataSource(DataSource primary, Map<String, ? extends DataSource> replicas,
+                                      ReplicaLagMonitor lagMonitor, ReadYourWrites readYourWrites) {
+        this.lagMonitor = lagMonitor;
+        this.readYourWrites = readYourWrites;
+        Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String username = CurrentUser.username();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                readYourWrites.recordWrite(username);
+            }
+            return PRIMARY;
+        }
+        if (readYourWrites.isPinned(username)) {
+            return PRIMARY;
+        }
+        Long since = ReplicaReads.since();
+        List<String> healthy = since == null ? lagMonitor.healthyReplicas() : lagMonitor.replicasCaughtUpTo(since);
+        if (healthy.isEmpty()) {
+            return PRIMARY;
+        }
+        return healthy.get(Math.floorMod(nextReplica.getAndIncrement(), healthy.size()));
+    }
+}
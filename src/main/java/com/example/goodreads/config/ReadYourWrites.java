@@ -0,0 +1,44 @@
+package com.example.goodreads.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+
+// Użytkownik, który właśnie coś zapisał, przez krótkie okno czyta z primary - inaczej mógłby nie zobaczyć
+// własnej zmiany na opóźnionej replice. Stan jest lokalny dla instancji aplikacji.
+public class ReadYourWrites {
+
+    private static final long MAX_TRACKED_USERS = 100_000;
+
+    private final Cache<String, Boolean> recentWriters;
+
+    public ReadYourWrites(Duration window) {
+        this.recentWriters = Caffeine.newBuilder()
+                .maximumSize(MAX_TRACKED_USERS)
+                .expireAfterWrite(window)
+                .build();
+    }
+
+    // Okno liczymy od początku transakcji zapisującej i jeszcze raz od jej zatwierdzenia
+    public void recordWrite(String username) {
+        if (username == null) {
+            return;
+        }
+        recentWriters.put(username, Boolean.TRUE);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    recentWriters.put(username, Boolean.TRUE);
+                }
+            });
+        }
+    }
+
+    public boolean isPinned(String username) {
+        return username != null && recentWriters.getIfPresent(username) != null;
+    }
+}
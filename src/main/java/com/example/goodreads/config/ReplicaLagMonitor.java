@@ -0,0 +1,168 @@
+package com.example.goodreads.config;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Opóźnienie replik mierzone heartbeatem: co interwał zapisujemy znacznik czasu na primary i sprawdzamy,
+// który znacznik widzi już każda replika. Opóźnienie to czas od zapisu najstarszego znacznika, którego replika
+// jeszcze nie ma. Replika z opóźnieniem powyżej limitu lub niedostępna nie dostaje odczytów.
+@Slf4j
+public class ReplicaLagMonitor {
+
+    static final String HEARTBEAT_TABLE = "replication_heartbeat";
+    private static final int MAX_TRACKED_BEATS = 100;
+
+    private final DataSource primary;
+    private final Map<String, ? extends DataSource> replicas;
+    private final long maxLagMillis;
+    private final Duration interval;
+
+    private final Deque<Long> recentBeats = new ArrayDeque<>();
+    private final Map<String, Long> lagMillis = new ConcurrentHashMap<>();
+    private final Map<String, Long> seenBeats = new ConcurrentHashMap<>();
+    private volatile List<String> healthyReplicas = List.of();
+    private ScheduledExecutorService executor;
+
+    public ReplicaLagMonitor(DataSource primary, Map<String, ? extends DataSource> replicas,
+                             Duration maxLag, Duration interval) {
+        this.primary = primary;
+        this.replicas = replicas;
+        this.maxLagMillis = maxLag.toMillis();
+        this.interval = interval;
+    }
+
+    public void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().daemon().name("replica-lag-monitor").factory());
+        executor.scheduleWithFixedDelay(this::checkQuietly, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    private void checkQuietly() {
+        try {
+            check();
+        } catch (Exception ex) {
+            log.warn("Nie udało się zapisać heartbeatu replikacji: {}", ex.getMessage());
+        }
+    }
+
+    public synchronized void check() throws SQLException {
+        long now = System.currentTimeMillis();
+        List<String> healthy = new ArrayList<>();
+        for (Map.Entry<String, ? extends DataSource> replica : replicas.entrySet()) {
+            long seenBeat = recentBeats.isEmpty() ? -1 : seenBeatOf(replica.getValue());
+            seenBeats.put(replica.getKey(), seenBeat);
+            long lag = lagOf(seenBeat, now);
+            Long previous = lagMillis.put(replica.getKey(), lag);
+            boolean isHealthy = lag >= 0 && lag <= maxLagMillis;
+            boolean wasHealthy = previous != null && previous >= 0 && previous <= maxLagMillis;
+            if (isHealthy) {
+                healthy.add(replica.getKey());
+            }
+            if (isHealthy != wasHealthy) {
+                log.info("Replika {} {} odczyty (opóźnienie: {} ms)", replica.getKey(),
+                        isHealthy ? "przyjmuje" : "nie przyjmuje", lag);
+            }
+        }
+        healthyReplicas = List.copyOf(healthy);
+        writeHeartbeat(Math.max(now, recentBeats.isEmpty() ? 0 : recentBeats.peekLast() + 1));
+    }
+
+    // -1 gdy opóźnienia nie da się ustalić (brak połączenia, brak heartbeatu)
+    private long lagOf(long seenBeat, long now) {
+        if (seenBeat < 0) {
+            return -1;
+        }
+        for (long beat : recentBeats) {
+            if (beat > seenBeat) {
+                return now - beat;
+            }
+        }
+        return 0;
+    }
+
+    // Ostatni heartbeat widoczny na replice, -1 gdy nie da się go odczytać
+    private long seenBeatOf(DataSource replica) {
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT beat FROM " + HEARTBEAT_TABLE + " WHERE id = 1")) {
+            return resultSet.next() ? resultSet.getLong(1) : -1;
+        } catch (SQLException ex) {
+            log.debug("Nie udało się odczytać heartbeatu z repliki: {}", ex.getMessage());
+            return -1;
+        }
+    }
+
+    private void writeHeartbeat(long beat) throws SQLException {
+        try (Connection connection = primary.getConnection()) {
+            if (recentBeats.isEmpty()) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("CREATE TABLE IF NOT EXISTS " + HEARTBEAT_TABLE
+                            + " (id INT PRIMARY KEY, beat BIGINT NOT NULL)");
+                }
+            }
+            int updated;
+            try (PreparedStatement update = connection.prepareStatement(
+                    "UPDATE " + HEARTBEAT_TABLE + " SET beat = ? WHERE id = 1")) {
+                update.setLong(1, beat);
+                updated = update.executeUpdate();
+            }
+            if (updated == 0) {
+                try (PreparedStatement insert = connection.prepareStatement(
+                        "INSERT INTO " + HEARTBEAT_TABLE + " (id, beat) VALUES (1, ?)")) {
+                    insert.setLong(1, beat);
+                    insert.executeUpdate();
+                }
+            }
+        }
+        recentBeats.addLast(beat);
+        if (recentBeats.size() > MAX_TRACKED_BEATS) {
+            recentBeats.removeFirst();
+        }
+    }
+
+    public List<String> healthyReplicas() {
+        return healthyReplicas;
+    }
+
+    // Znacznik heartbeatu to czas odczytany przed jego zapisem, więc replika ze znacznikiem późniejszym niż sinceMillis
+    // ma już wszystko, co primary zatwierdził przed sinceMillis
+    public List<String> replicasCaughtUpTo(long sinceMillis) {
+        return healthyReplicas.stream()
+                .filter(replica -> seenBeats.getOrDefault(replica, -1L) > sinceMillis)
+                .toList();
+    }
+
+    // Nowy heartbeat trafia na zdrową replikę najpóźniej po interwale i dopuszczalnym opóźnieniu, a kolejny pomiar
+    // go zauważa. Jeśli w tym czasie żadna replika nie dogoni sinceMillis, odczyty ReplicaReads pójdą na primary
+    public void awaitCaughtUp(long sinceMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + interval.multipliedBy(2).plusMillis(maxLagMillis).toNanos();
+        while (replicasCaughtUpTo(sinceMillis).isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(Math.min(interval.toMillis(), 100));
+        }
+    }
+
+    // -1 gdy replika nie odpowiada lub nie ma jeszcze pomiaru
+    public long lagMillis(String replica) {
+        return lagMillis.getOrDefault(replica, -1L);
+    }
+}
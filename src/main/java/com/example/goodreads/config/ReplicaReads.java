@@ -0,0 +1,32 @@
+package com.example.goodreads.config;
+
+import java.util.function.Supplier;
+
+// Odczyty w tle, które muszą zobaczyć wszystko zatwierdzone przed podanym momentem (przebudowa indeksu, ładowanie
+// struktur w pamięci). Idą tylko na replikę z heartbeatem zapisanym po tym momencie, a bez takiej - na primary.
+// Bez skonfigurowanych replik nie ma znaczenia.
+public final class ReplicaReads {
+
+    private static final ThreadLocal<Long> SINCE = new ThreadLocal<>();
+
+    private ReplicaReads() {
+    }
+
+    public static <T> T caughtUpTo(long sinceMillis, Supplier<T> reads) {
+        Long previous = SINCE.get();
+        SINCE.set(previous == null ? sinceMillis : Math.max(previous, sinceMillis));
+        try {
+            return reads.get();
+        } finally {
+            if (previous == null) {
+                SINCE.remove();
+            } else {
+                SINCE.set(previous);
+            }
+        }
+    }
+
+    static Long since() {
+        return SINCE.get();
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.goodreads.config;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Liczniki zapytań SQL i wczytanych encji dla żądania obsługiwanego przez bieżący wątek.
+// Poza żądaniem (zadania w tle, wątki schedulera) nic nie jest liczone. Zakresy można zagnieżdżać -
+// zapytanie liczy się we wszystkich otwartych zakresach (np. test obejmujący kilka żądań MockMvc).
+public final class RequestQueryStats {
+
+    private static final ThreadLocal<RequestQueryStats> CURRENT = new ThreadLocal<>();
+
+    private final RequestQueryStats parent;
+    // Hibernate przekazuje SQL z parametrami jako "?", więc ten sam tekst to to samo zapytanie z innymi parametrami
+    private final Map<String, Integer> statementCounts = new HashMap<>();
+
+    private int statements;
+    private int entityLoads;
+    private String mostRepeatedStatement;
+    private int mostRepeatedCount;
+
+    private int maxStatements = QueryBudget.UNLIMITED;
+    private int maxRepeats = QueryBudget.UNLIMITED;
+    private boolean failFast;
+    private String violation;
+
+    private RequestQueryStats(RequestQueryStats parent) {
+        this.parent = parent;
+    }
+
+    public static RequestQueryStats start() {
+        RequestQueryStats stats = new RequestQueryStats(CURRENT.get());
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    public static RequestQueryStats current() {
+        return CURRENT.get();
+    }
+
+    public void finish() {
+        if (parent == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(parent);
+        }
+    }
+
+    public void limit(int maxStatements, int maxRepeats, boolean failFast) {
+        this.maxStatements = maxStatements;
+        this.maxRepeats = maxRepeats;
+        this.failFast = failFast;
+    }
+
+    static void statementPrepared(String sql) {
+        for (RequestQueryStats stats = CURRENT.get(); stats != null; stats = stats.parent) {
+            stats.record(sql);
+        }
+    }
+
+    static void entityLoaded() {
+        for (RequestQueryStats stats = CURRENT.get(); stats != null; stats = stats.parent) {
+            stats.entityLoads++;
+        }
+    }
+
+    private void record(String sql) {
+        statements++;
+        int repeats = statementCounts.merge(sql, 1, Integer::sum);
+        if (repeats > mostRepeatedCount) {
+            mostRepeatedCount = repeats;
+            mostRepeatedStatement = sql;
+        }
+        if (violation != null) {
+            return;
+        }
+        if (statements > maxStatements) {
+            violation = "wykonano " + statements + " zapytań przy budżecie " + maxStatements;
+        } else if (repeats > maxRepeats) {
+            violation = "to samo zapytanie wykonano " + repeats + " razy (możliwe N+1): " + sql;
+        }
+        if (violation != null && failFast) {
+            throw new QueryBudgetExceededException("Przekroczony budżet zapytań: " + violation);
+        }
+    }
+
+    public int statements() {
+        return statements;
+    }
+
+    public int entityLoads() {
+        return entityLoads;
+    }
+
+    public String mostRepeatedStatement() {
+        return mostRepeatedStatement;
+    }
+
+    public int mostRepeatedCount() {
+        return mostRepeatedCount;
+    }
+
+    // Opis pierwszego przekroczenia limitów albo null
+    public String violation() {
+        return violation;
+    }
+}
@@ -1,28 +1,45 @@
 package com.example.goodreads.controller;
 
+import com.example.goodreads.config.AsyncTimeoutConfig;
+import com.example.goodreads.config.QueryBudget;
+import com.example.goodreads.dto.BookCommentLength;
+import com.example.goodreads.dto.BookReaderCount;
+import com.example.goodreads.dto.BookReadingStats;
+import com.example.goodreads.dto.ImportReport;
 import com.example.goodreads.model.Book;
 import com.example.goodreads.model.Comment;
+import com.example.goodreads.security.Role;
+import com.example.goodreads.security.Roles;
+import com.example.goodreads.service.BookImportService;
 import com.example.goodreads.service.BookService;
+import com.example.goodreads.service.CatalogExportService;
 import com.example.goodreads.service.CommentNotFoundException;
 import com.example.goodreads.service.CommentService;
+import com.example.goodreads.service.ExportFormat;
 import jakarta.persistence.EntityNotFoundException;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/books")
-@PreAuthorize("hasRole('client_admin')")
+@Roles(Role.CLIENT_ADMIN)
 public class AdminController {
 
     private final BookService bookService;
@@ -30,12 +47,22 @@ public class AdminController {
     @Autowired
     private CommentService commentService;
 
+    @Autowired
+    private CatalogExportService catalogExportService;
+
+    @Autowired
+    private BookImportService bookImportService;
+
+    @Value("${goodreads.export.timeout:30m}")
+    private Duration exportTimeout;
+
     public AdminController(BookService bookService) {
         this.bookService = bookService;
     }
 
 
     @PostMapping("/")
+    @QueryBudget(3)
     public ResponseEntity<ApiResponse> addBook(@Valid @RequestBody Book book, BindingResult bindingResult) {
 
         ResponseEntity<ApiResponse> errors = getApiResponseResponseEntity(bindingResult);
@@ -64,6 +91,7 @@ public class AdminController {
     }
 
     @PutMapping("/{id}")
+    @QueryBudget(2)
     public ResponseEntity<ApiResponse> updateBook(@PathVariable Long id, @Valid @RequestBody Book book, BindingResult bindingResult) {
 
         ResponseEntity<ApiResponse> errors = getApiResponseResponseEntity(bindingResult);
@@ -82,6 +110,7 @@ public class AdminController {
     }
 
     @DeleteMapping("/{id}")
+    @QueryBudget(6)
     public ResponseEntity<ApiResponse> deleteBook(@PathVariable Long id) {
         try {
             boolean deleted = bookService.deleteBook(id);
@@ -99,6 +128,7 @@ public class AdminController {
     }
 
     @DeleteMapping("/{bookId}/deleteComment/{commentId}")
+    @QueryBudget(3)
     public ResponseEntity<ApiResponse> deleteComment(@PathVariable("bookId") Long bookId,
                                                      @PathVariable("commentId") Long commentId) {
 
@@ -116,6 +146,7 @@ public class AdminController {
     }
 
     @PutMapping("/{bookId}/editComment/{commentId}")
+    @QueryBudget(3)
     public ResponseEntity<ApiResponse> editComment(@PathVariable("bookId") Long bookId,
                                                    @PathVariable("commentId") Long commentId,
                                                    @RequestBody @Valid Comment comment,
@@ -130,28 +161,15 @@ public class AdminController {
         }
 
 
-        if (!bookService.existsById(bookId)) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(new ApiResponse("Książka o podanym ID nie istnieje"));
-        }
-
-
-        Optional<Comment> existingComment = commentService.findById(commentId);
-        if (existingComment.isEmpty()) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                    .body(new ApiResponse("Komentarz o podanym ID nie istnieje"));
-        }
-
-        // Aktualizacja komentarza
+        // Aktualizacja komentarza - brak książki lub komentarza wychodzi z warunkowego UPDATE
         try {
-            Comment updatedComment = existingComment.get();
-            updatedComment.setContent(comment.getContent());
-            updatedComment.setRating(comment.getRating());
-
-            commentService.saveComment(updatedComment);
+            commentService.updateComment(bookId, commentId, comment.getContent(), comment.getRating());
 
             return ResponseEntity.status(HttpStatus.OK)
                     .body(new ApiResponse("Komentarz został zaktualizowany."));
+        } catch (CommentNotFoundException ex) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(new ApiResponse(ex.getMessage()));
         } catch (Exception ex) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(new ApiResponse("Wystąpił błąd podczas edytowania komentarza: " + ex.getMessage()));
@@ -162,6 +180,7 @@ public class AdminController {
 
 
     @GetMapping("/ratings")
+    @QueryBudget(1)
     public ResponseEntity<List<Object[]>> getBooksWithRatings() {
         List<Object[]> booksWithRatings = bookService.getBooksWithTotalRatings();
         return booksWithRatings.isEmpty()
@@ -170,6 +189,7 @@ public class AdminController {
     }
 
     @GetMapping("/top3-commented")
+    @QueryBudget(1)
     public ResponseEntity<List<Object[]>> getTop3MostCommentedBooks() {
         List<Object[]> topCommentedBooks = bookService.getTop3MostCommentedBooks();
         return topCommentedBooks.isEmpty()
@@ -178,29 +198,83 @@ public class AdminController {
     }
 
     @GetMapping("/average-readed")
-    public ResponseEntity<List<Object[]>> getBooksWithStatistics() {
-        List<Object[]> booksWithStatistics = bookService.getBooksWithReadCountAndAverageRating();
+    @QueryBudget(1)
+    public ResponseEntity<List<BookReadingStats>> getBooksWithStatistics() {
+        List<BookReadingStats> booksWithStatistics = bookService.getBooksWithReadCountAndAverageRating();
         return booksWithStatistics.isEmpty()
                 ? ResponseEntity.noContent().build()
                 : ResponseEntity.ok(booksWithStatistics);
     }
 
     @GetMapping("/average-comment-length")
-    public ResponseEntity<List<Object[]>> getAverageCommentLengthPerBook() {
-        List<Object[]> averageCommentLength = bookService.getAverageCommentLengthPerBook();
+    @QueryBudget(1)
+    public ResponseEntity<List<BookCommentLength>> getAverageCommentLengthPerBook() {
+        List<BookCommentLength> averageCommentLength = bookService.getAverageCommentLengthPerBook();
         return averageCommentLength.isEmpty()
                 ? ResponseEntity.noContent().build()
                 : ResponseEntity.ok(averageCommentLength);
     }
 
     @GetMapping("/readers-count")
-    public ResponseEntity<List<Object[]>> getBooksWithReadersCount() {
-        List<Object[]> booksWithReaders = bookService.getBooksWithReadersCount();
+    @QueryBudget(1)
+    public ResponseEntity<List<BookReaderCount>> getBooksWithReadersCount() {
+        List<BookReaderCount> booksWithReaders = bookService.getBooksWithReadersCount();
         return booksWithReaders.isEmpty()
                 ? ResponseEntity.noContent().build()
                 : ResponseEntity.ok(booksWithReaders);
     }
 
+    // EKSPORT
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportCatalog(@RequestParam(value = "format", defaultValue = "ndjson") String format,
+                                                               @RequestParam(value = "type", defaultValue = "books") String type,
+                                                               HttpServletRequest request) {
+        // Błędne parametry obsługuje handleBadExportRequest - typ zwracany musi wskazywać na StreamingResponseBody,
+        // inaczej Spring nie uruchomi zapisu strumieniowego
+        ExportFormat exportFormat = ExportFormat.fromParam(format);
+
+        // Odpowiedź jest zapisywana bezpośrednio do strumienia wyjściowego, poza wątkiem żądania
+        StreamingResponseBody body;
+        if ("books".equalsIgnoreCase(type)) {
+            body = out -> catalogExportService.exportBooks(exportFormat, out);
+        } else if ("comments".equalsIgnoreCase(type)) {
+            body = out -> catalogExportService.exportComments(exportFormat, out);
+        } else {
+            throw new IllegalArgumentException("Niepoprawny typ eksportu. Dozwolone: books, comments.");
+        }
 
+        AsyncTimeoutConfig.setTimeout(request, exportTimeout);
+        String fileName = type.toLowerCase() + "." + exportFormat.extension();
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .contentType(MediaType.parseMediaType(exportFormat.contentType() + ";charset=UTF-8"))
+                .body(body);
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<ApiResponse> handleBadExportRequest(IllegalArgumentException ex) {
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(new ApiResponse(ex.getMessage()));
+    }
 
+    // Treść żądania jest czytana strumieniowo, rekord po rekordzie
+    @PostMapping("/import")
+    // Każda paczka importu powtarza te same zapytania
+    @QueryBudget(maxRepeats = QueryBudget.UNLIMITED)
+    public ResponseEntity<ApiResponse> importBooks(@RequestParam(value = "format", defaultValue = "ndjson") String format,
+                                                   InputStream body) {
+        try {
+            ImportReport report = bookImportService.importBooks(ExportFormat.fromParam(format), body);
+            return ResponseEntity.ok(new ApiResponse("Zaimportowano książki: " + report.getImported()
+                    + " z " + report.getTotal(), report));
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ApiResponse(ex.getMessage()));
+        } catch (IOException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ApiResponse("Nie udało się odczytać danych importu: " + ex.getMessage()));
+        }
+    }
 }
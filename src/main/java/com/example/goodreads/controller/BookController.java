@@ -1,21 +1,36 @@
 package com.example.goodreads.controller;
 
+import com.example.goodreads.config.QueryBudget;
+import com.example.goodreads.dto.BookDetails;
+import com.example.goodreads.dto.BookSummary;
+import com.example.goodreads.dto.CommentView;
+import com.example.goodreads.dto.CursorPage;
+import com.example.goodreads.dto.RatingDistribution;
 import com.example.goodreads.model.Book;
 import com.example.goodreads.model.Comment;
+import com.example.goodreads.security.CurrentUser;
+import com.example.goodreads.security.Role;
 import com.example.goodreads.service.BookNotFoundException;
 import com.example.goodreads.service.BookService;
+import com.example.goodreads.service.BookVersions;
+import com.example.goodreads.service.CommentIngestionQueue;
 import com.example.goodreads.service.CommentNotFoundException;
 import com.example.goodreads.service.CommentService;
+import com.example.goodreads.service.CommentSort;
+import com.example.goodreads.service.InvalidCursorException;
+import com.example.goodreads.service.RankingMetric;
+import com.example.goodreads.service.SnapshotReads;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.validation.Valid;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.HashMap;
 import java.util.List;
@@ -31,59 +46,182 @@ public class BookController {
     @Autowired
     private CommentService commentService;
 
+    @Autowired
+    private SnapshotReads snapshotReads;
+
+    // Dostępna tylko przy goodreads.comments.async.enabled=true
+    @Autowired
+    private ObjectProvider<CommentIngestionQueue> commentIngestionQueue;
+
     public BookController(BookService bookService) {
         this.bookService = bookService;
     }
 
 
     @GetMapping("/")
-    public ResponseEntity<ApiResponse> listAllBooks() {
+    @QueryBudget(4)
+    public ResponseEntity<ApiResponse> listAllBooks(@RequestParam(value = "after", required = false) String after,
+                                                    @RequestParam(value = "limit", required = false) Integer limit,
+                                                    @RequestParam(value = "include", required = false) String include,
+                                                    WebRequest webRequest) {
         if (!hasClientRole()) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN)
                     .body(new ApiResponse("Brak uprawnień do wykonania tej operacji"));
         }
 
-        List<Book> books = bookService.getAllBooks();
-
-        if (books.isEmpty()) {
-            return ResponseEntity.status(HttpStatus.NO_CONTENT)
-                    .body(new ApiResponse("Brak książek w bazie"));
+        // Stronicowanie kursorem: ?after=<kursor>&limit=N; bez parametrów zwracamy pierwszą stronę,
+        // bo pełny katalog nie zmieściłby się w jednym zapytaniu IN o komentarze.
+        // Wersje książek i stronę czytamy z jednej migawki, więc ETag zawsze pasuje do treści odpowiedzi
+        try {
+            return snapshotReads.call(() -> {
+                String eTag = bookService.catalogPageETag(after, limit);
+                if (eTag != null && webRequest.checkNotModified(eTag)) {
+                    return null;
+                }
+                CursorPage<BookSummary> page = bookService.getBookSummariesPage(after, limit, includesComments(include));
+                if (after == null && limit == null && page.getItems().isEmpty()) {
+                    return ResponseEntity.status(HttpStatus.NO_CONTENT)
+                            .body(new ApiResponse("Brak książek w bazie"));
+                }
+                return ResponseEntity.ok().eTag(eTag).body(new ApiResponse("Lista książek", page));
+            });
+        } catch (InvalidCursorException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ApiResponse(ex.getMessage()));
         }
-
-        return ResponseEntity.ok(new ApiResponse("Lista książek", books));
     }
 
     @GetMapping("/search")
-    public ResponseEntity<ApiResponse> searchBooksByTitle(@RequestParam("title") String title) {
+    @QueryBudget(3)
+    public ResponseEntity<ApiResponse> searchBooksByTitle(@RequestParam("title") String title,
+                                                          @RequestParam(value = "limit", required = false) Integer limit,
+                                                          @RequestParam(value = "include", required = false) String include,
+                                                          WebRequest webRequest) {
         if (!hasClientRole()) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN)
                     .body(new ApiResponse("Brak uprawnień do wykonania tej operacji"));
         }
 
-        List<Book> books = bookService.findBooksByTitle(title);
+        // Wyniki z indeksu ustalamy raz; ETag z wersji tych książek i ich dane pochodzą z jednej migawki.
+        // Zapasowe wyszukiwanie LIKE nie ma ETagu
+        return snapshotReads.call(() -> {
+            List<Long> ids = bookService.findIdsByTitle(title, limit);
+            String eTag = ids == null ? null : bookService.booksETag(ids);
+            if (eTag != null && webRequest.checkNotModified(eTag)) {
+                return null;
+            }
+            List<Book> found = ids == null ? bookService.findBooksByTitle(title, limit) : bookService.findBooksByIds(ids);
+            List<BookSummary> books = bookService.toSummaries(found, includesComments(include));
+            if (books.isEmpty()) {
+                return ResponseEntity.status(HttpStatus.NO_CONTENT)
+                        .body(new ApiResponse("Brak książek pasujących do podanego tytułu"));
+            }
+            return ResponseEntity.ok().eTag(eTag).body(new ApiResponse("Znalezione książki", books));
+        });
+    }
 
-        if (books.isEmpty()) {
-            return ResponseEntity.status(HttpStatus.NO_CONTENT)
-                    .body(new ApiResponse("Brak książek pasujących do podanego tytułu"));
+    @GetMapping("/top")
+    @QueryBudget(1)
+    public ResponseEntity<ApiResponse> getTopBooks(@RequestParam(value = "metric", defaultValue = "comments") String metric,
+                                                   @RequestParam(value = "k", defaultValue = "10") int k) {
+        if (!hasClientRole()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(new ApiResponse("Brak uprawnień do wykonania tej operacji"));
         }
 
-        return ResponseEntity.ok(new ApiResponse("Znalezione książki", books));
+        RankingMetric rankingMetric;
+        try {
+            rankingMetric = RankingMetric.fromParam(metric);
+        } catch (IllegalArgumentException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ApiResponse(ex.getMessage()));
+        }
+        if (k < 1 || k > BookService.MAX_PAGE_SIZE) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ApiResponse("Parametr k musi być z zakresu 1-" + BookService.MAX_PAGE_SIZE));
+        }
+        if (!bookService.isRankingReady()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(new ApiResponse("Ranking książek jest w trakcie budowania, spróbuj ponownie za chwilę"));
+        }
+
+        return ResponseEntity.ok(new ApiResponse("Ranking książek", bookService.getTopBooks(rankingMetric, k)));
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<ApiResponse> getBookById(@PathVariable("id") int id) {
+    @QueryBudget(3)
+    public ResponseEntity<ApiResponse> getBookById(@PathVariable("id") long id, WebRequest webRequest) {
         if (!hasClientRole()) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN)
                     .body(new ApiResponse("Brak uprawnień do wykonania tej operacji"));
         }
 
-        Book book = bookService.findBookById(id);
+        // Przy trafieniu w cache jedynym zapytaniem jest odczyt wersji książki
+        BookDetails book = bookService.findBookById(id);
         if (book == null) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(new ApiResponse("Książka o podanym ID nie została znaleziona"));
         }
 
-        return ResponseEntity.ok(new ApiResponse("Sukces", book));
+        String eTag = book.getVersion() == null ? null : BookVersions.bookETag(id, book.getVersion());
+        if (eTag != null && webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(eTag).body(new ApiResponse("Sukces", book));
+    }
+
+    @GetMapping("/{id}/ratings")
+    @QueryBudget(1)
+    public ResponseEntity<ApiResponse> getBookRatings(@PathVariable("id") long id, WebRequest webRequest) {
+        if (!hasClientRole()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(new ApiResponse("Brak uprawnień do wykonania tej operacji"));
+        }
+
+        if (!bookService.isKnownBook(id)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(new ApiResponse("Książka o podanym ID nie została znaleziona"));
+        }
+
+        RatingDistribution distribution = bookService.getRatingDistribution(id);
+        String eTag = BookVersions.ratingsETag(distribution);
+        if (webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(eTag).body(new ApiResponse("Rozkład ocen", distribution));
+    }
+
+    @GetMapping("/{id}/comments")
+    @QueryBudget(3)
+    public ResponseEntity<ApiResponse> getBookComments(@PathVariable("id") long id,
+                                                       @RequestParam(value = "sort", defaultValue = "id") String sort,
+                                                       @RequestParam(value = "cursor", required = false) String cursor,
+                                                       @RequestParam(value = "limit", required = false) Integer limit,
+                                                       WebRequest webRequest) {
+        if (!hasClientRole()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(new ApiResponse("Brak uprawnień do wykonania tej operacji"));
+        }
+
+        // Każda zmiana komentarzy podbija wersję książki, więc jej ETag obejmuje też wszystkie strony komentarzy;
+        // wersję i stronę czytamy z jednej migawki
+        try {
+            CommentSort commentSort = CommentSort.fromParam(sort);
+            return snapshotReads.call(() -> {
+                String eTag = bookService.bookETag(id);
+                if (eTag != null && webRequest.checkNotModified(eTag)) {
+                    return null;
+                }
+                CursorPage<CommentView> page = commentService.getCommentsPage(id, commentSort, cursor, limit);
+                return ResponseEntity.ok().eTag(eTag).body(new ApiResponse("Komentarze książki", page));
+            });
+        } catch (BookNotFoundException ex) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(new ApiResponse(ex.getMessage()));
+        } catch (IllegalArgumentException | InvalidCursorException ex) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(new ApiResponse(ex.getMessage()));
+        }
     }
 
 //    @PostMapping("/")
@@ -152,6 +290,7 @@ public class BookController {
 
 
     @PostMapping("/{bookId}/addComment")
+    @QueryBudget(2)
     public ResponseEntity<ApiResponse> addComment(@PathVariable("bookId") Long bookId,
                                                   @RequestBody @Valid Comment comment,
                                                   BindingResult bindingResult) {
@@ -164,6 +303,10 @@ public class BookController {
         ResponseEntity<ApiResponse> errors = getApiResponseResponseEntity(bindingResult);
         if (errors != null) return errors;
 
+        CommentIngestionQueue queue = commentIngestionQueue.getIfAvailable();
+        if (queue != null) {
+            return enqueueComment(queue, bookId, comment);
+        }
 
         try {
             commentService.addComment(bookId, comment);
@@ -178,6 +321,20 @@ public class BookController {
         }
     }
 
+    private ResponseEntity<ApiResponse> enqueueComment(CommentIngestionQueue queue, Long bookId, Comment comment) {
+        if (!bookService.isKnownBook(bookId)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(new ApiResponse("Book not found"));
+        }
+        if (!queue.submit(bookId, comment)) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .body(new ApiResponse("Zbyt wiele komentarzy oczekuje na zapis, spróbuj ponownie za chwilę"));
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(new ApiResponse("Komentarz do książki o ID: " + bookId + " został przyjęty do zapisu"));
+    }
+
     private ResponseEntity<ApiResponse> getApiResponseResponseEntity(BindingResult bindingResult) {
         if (bindingResult.hasErrors()) {
             Map<String, String> errors = new HashMap<>();
@@ -216,10 +373,12 @@ public class BookController {
 
 
 
+    private boolean includesComments(String include) {
+        return "comments".equalsIgnoreCase(include);
+    }
+
     private boolean hasClientRole() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        return authentication != null && authentication.getAuthorities().stream()
-                .anyMatch(grantedAuthority -> grantedAuthority.getAuthority().equals("ROLE_client_user"));
+        return CurrentUser.hasRole(Role.CLIENT_USER);
     }
 //
 //    @GetMapping("/ratings")
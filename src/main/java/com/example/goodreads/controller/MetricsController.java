@@ -0,0 +1,65 @@
+package com.example.goodreads.controller;
+
+import com.example.goodreads.security.Role;
+import com.example.goodreads.security.Roles;
+import com.example.goodreads.service.BookCache;
+import com.example.goodreads.service.CommentIngestionQueue;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/metrics")
+@Roles(Role.CLIENT_ADMIN)
+public class MetricsController {
+
+    private final BookCache bookCache;
+    private final ObjectProvider<CommentIngestionQueue> commentIngestionQueue;
+
+    public MetricsController(BookCache bookCache, ObjectProvider<CommentIngestionQueue> commentIngestionQueue) {
+        this.bookCache = bookCache;
+        this.commentIngestionQueue = commentIngestionQueue;
+    }
+
+    @GetMapping("/book-cache")
+    public ResponseEntity<ApiResponse> getBookCacheMetrics() {
+        CacheStats stats = bookCache.stats();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("size", bookCache.size());
+        metrics.put("hits", stats.hitCount());
+        metrics.put("misses", stats.missCount());
+        metrics.put("hitRate", stats.hitRate());
+        metrics.put("evictions", stats.evictionCount());
+        metrics.put("averageLoadPenaltyNanos", stats.averageLoadPenalty());
+        return ResponseEntity.ok(new ApiResponse("Statystyki cache książek", metrics));
+    }
+
+    @GetMapping("/comment-queue")
+    public ResponseEntity<ApiResponse> getCommentQueueMetrics() {
+        CommentIngestionQueue queue = commentIngestionQueue.getIfAvailable();
+        if (queue == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(new ApiResponse("Asynchroniczny zapis komentarzy jest wyłączony"));
+        }
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("depth", queue.depth());
+        metrics.put("capacity", queue.capacity());
+        metrics.put("accepted", queue.accepted());
+        metrics.put("rejected", queue.rejected());
+        metrics.put("written", queue.written());
+        metrics.put("dropped", queue.dropped());
+        metrics.put("failed", queue.failed());
+        metrics.put("commits", queue.commits());
+        metrics.put("averageCommitMillis", queue.averageCommitMillis());
+        metrics.put("maxCommitMillis", queue.maxCommitMillis());
+        metrics.put("maxQueueWaitMillis", queue.maxQueueWaitMillis());
+        return ResponseEntity.ok(new ApiResponse("Statystyki kolejki komentarzy", metrics));
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.goodreads.controller;
+
+import com.example.goodreads.dto.BookDetails;
+import com.example.goodreads.dto.BookSummary;
+import com.example.goodreads.dto.CommentView;
+import com.example.goodreads.dto.CursorPage;
+import com.example.goodreads.security.CurrentUser;
+import com.example.goodreads.security.Role;
+import com.example.goodreads.service.BookService;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.concurrent.Callable;
+
+// Ścieżka tylko do odczytu: zapytania JPA idą na ograniczony scheduler, a listy są strumieniowane
+// (NDJSON albo SSE) stronami pobieranymi dopiero wtedy, gdy klient odebrał poprzednie
+@RestController
+@RequestMapping("/api/reactive/books")
+public class ReactiveBookController {
+
+    private final BookService bookService;
+    private final Scheduler bookReadScheduler;
+
+    public ReactiveBookController(BookService bookService, @Qualifier("bookReadScheduler") Scheduler bookReadScheduler) {
+        this.bookService = bookService;
+        this.bookReadScheduler = bookReadScheduler;
+    }
+
+    @GetMapping(value = "/", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public ResponseEntity<Flux<BookSummary>> streamAllBooks(@RequestParam(value = "include", required = false) String include) {
+        if (!hasClientRole()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        boolean includeComments = "comments".equalsIgnoreCase(include);
+
+        Flux<BookSummary> books = fetchPage(null, includeComments)
+                .expand(page -> page.getNextCursor() == null
+                        ? Mono.empty()
+                        : fetchPage(page.getNextCursor(), includeComments))
+                .concatMapIterable(CursorPage::getItems, 1);
+        return ResponseEntity.ok(books);
+    }
+
+    @GetMapping(value = "/search", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public ResponseEntity<Flux<BookSummary>> searchBooksByTitle(@RequestParam("title") String title,
+                                                                @RequestParam(value = "limit", required = false) Integer limit) {
+        if (!hasClientRole()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        Flux<BookSummary> books = offload(() -> bookService.toSummaries(bookService.findBooksByTitle(title, limit), false))
+                .flatMapIterable(summaries -> summaries);
+        return ResponseEntity.ok(books);
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<ApiResponse>> getBookById(@PathVariable("id") long id) {
+        if (!hasClientRole()) {
+            return Mono.just(ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(new ApiResponse("Brak uprawnień do wykonania tej operacji")));
+        }
+
+        return offload(() -> bookService.findBookById(id))
+                .map(book -> ResponseEntity.ok(new ApiResponse("Sukces", book)))
+                .defaultIfEmpty(ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(new ApiResponse("Książka o podanym ID nie została znaleziona")));
+    }
+
+    // Komentarze pochodzą z tego samego cache co szczegóły książki
+    @GetMapping(value = "/{id}/comments", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public ResponseEntity<Flux<CommentView>> streamComments(@PathVariable("id") long id) {
+        if (!hasClientRole()) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        Flux<CommentView> comments = offload(() -> bookService.findBookById(id))
+                .flatMapIterable(BookDetails::getComments);
+        return ResponseEntity.ok(comments);
+    }
+
+    private Mono<CursorPage<BookSummary>> fetchPage(String after, boolean includeComments) {
+        return offload(() -> bookService.getBookSummariesPage(after, BookService.MAX_PAGE_SIZE, includeComments));
+    }
+
+    // null z wywołania oznacza pusty wynik
+    private <T> Mono<T> offload(Callable<T> call) {
+        return Mono.fromCallable(call).subscribeOn(bookReadScheduler);
+    }
+
+    private boolean hasClientRole() {
+        return CurrentUser.hasRole(Role.CLIENT_USER);
+    }
+}
@@ -1,14 +1,15 @@
 package com.example.goodreads.controller;
 
-import com.example.goodreads.model.Book;
+import com.example.goodreads.config.QueryBudget;
 import com.example.goodreads.model.UsersBook;
-import com.example.goodreads.repository.BookRepository;
 import com.example.goodreads.repository.UsersBookRepository;
+import com.example.goodreads.security.CurrentUser;
+import com.example.goodreads.service.BookNotFoundException;
+import com.example.goodreads.service.InvalidCursorException;
+import com.example.goodreads.service.UsersBookService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
@@ -20,28 +21,40 @@ import java.util.Optional;
 public class UsersBookController {
 
     private final UsersBookRepository usersBookRepository;
-    private final BookRepository bookRepository;
+    private final UsersBookService usersBookService;
 
     @GetMapping
-    public ResponseEntity<?> getUserBooks(@RequestParam(required = false) UsersBook.Status status) {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication == null || !authentication.isAuthenticated()) {
+    @QueryBudget(3)
+    public ResponseEntity<?> getUserBooks(@RequestParam(required = false) UsersBook.Status status,
+                                          @RequestParam(required = false) String after,
+                                          @RequestParam(required = false) Integer limit) {
+        String username = CurrentUser.username();
+        if (username == null) {
             return ResponseEntity.status(401).body("Użytkownik nie jest zalogowany");
         }
-        String username = authentication.getName();
-        List<UsersBook> books = (status != null) ?
-                usersBookRepository.findByUsernameAndStatus(username, status) :
-                usersBookRepository.findByUsername(username);
+
+        // Książki UNREAD nie są zapisywane - bez statusu zwracamy stronę katalogu z wpisami użytkownika,
+        // a dla UNREAD stronę katalogu bez wpisów
+        if (status == null || status == UsersBook.Status.UNREAD) {
+            try {
+                return ResponseEntity.ok(status == null
+                        ? usersBookService.getShelf(username, after, limit)
+                        : usersBookService.getUnreadBooks(username, after, limit));
+            } catch (InvalidCursorException ex) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+            }
+        }
+        List<UsersBook> books = usersBookService.getStoredBooks(username, status);
         return ResponseEntity.ok(books);
     }
 
     @PutMapping("/{id}/status")
+    @QueryBudget(4)
     public ResponseEntity<?> updateBookStatus(@PathVariable Long id, @RequestParam String status) {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication == null || !authentication.isAuthenticated()) {
+        String username = CurrentUser.username();
+        if (username == null) {
             return ResponseEntity.status(401).body("Użytkownik nie jest zalogowany");
         }
-        String username = authentication.getName();
 
         Optional<UsersBook> usersBookOptional = usersBookRepository.findById(id);
         if (usersBookOptional.isEmpty()) {
@@ -55,33 +68,43 @@ public class UsersBookController {
 
         try {
             UsersBook.Status newStatus = UsersBook.Status.valueOf(status.toUpperCase());
-            usersBook.setStatus(newStatus);
-            usersBookRepository.save(usersBook);
-            return ResponseEntity.ok(usersBook);
+            return ResponseEntity.ok(usersBookService.changeStatus(usersBook, newStatus));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Niepoprawny status. Dozwolone statusy: READED, WANT_READ, UNREAD.");
         }
     }
 
 
-    @PostMapping("/init")
-    public ResponseEntity<?> initializeUserBooks() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication == null || !authentication.isAuthenticated()) {
+    @PutMapping("/book/{bookId}/status")
+    @QueryBudget(5)
+    public ResponseEntity<?> updateStatusForBook(@PathVariable Long bookId, @RequestParam String status) {
+        String username = CurrentUser.username();
+        if (username == null) {
             return ResponseEntity.status(401).body("Użytkownik nie jest zalogowany");
         }
-        String username = authentication.getName();
 
-        List<Book> books = bookRepository.findAll();
+        UsersBook.Status newStatus;
+        try {
+            newStatus = UsersBook.Status.valueOf(status.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Niepoprawny status. Dozwolone statusy: READED, WANT_READ, UNREAD.");
+        }
 
-        for (Book book : books) {
-            UsersBook usersBook = new UsersBook();
-            usersBook.setUsername(username);
-            usersBook.setBook(book);
-            usersBook.setStatus(UsersBook.Status.UNREAD);
-            usersBookRepository.save(usersBook);
+        try {
+            return ResponseEntity.ok(usersBookService.changeStatusForBook(username, bookId, newStatus));
+        } catch (BookNotFoundException ex) {
+            return ResponseEntity.status(404).body(ex.getMessage());
+        }
+    }
+
+    @PostMapping("/init")
+    @QueryBudget(0)
+    public ResponseEntity<?> initializeUserBooks() {
+        if (CurrentUser.username() == null) {
+            return ResponseEntity.status(401).body("Użytkownik nie jest zalogowany");
         }
 
+        // Półka jest rzadka - książki bez zapisanego wpisu są traktowane jako 'UNREAD', więc nie ma czego zapisywać
         return ResponseEntity.ok("Wszystkie książki zostały zainicjalizowane jako 'UNREAD'");
     }
 }
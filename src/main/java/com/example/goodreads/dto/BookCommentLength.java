@@ -0,0 +1,5 @@
+package com.example.goodreads.dto;
+
+// Średnia długość komentarza; null dla książek bez komentarzy
+public record BookCommentLength(Long id, String title, String author, Double averageCommentLength) {
+}
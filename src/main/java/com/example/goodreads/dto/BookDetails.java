@@ -0,0 +1,31 @@
+package com.example.goodreads.dto;
+
+import com.example.goodreads.model.Book;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Getter;
+
+import java.util.List;
+
+// Niezmienna kopia książki z komentarzami, bezpieczna do trzymania w cache poza sesją Hibernate
+@Getter
+public class BookDetails {
+    private final Long id;
+    private final String title;
+    private final String author;
+    private final String description;
+    private final String genre;
+    private final List<CommentView> comments;
+    // Wersja z book_stats, przy której wczytano treść; null, gdy książka nie ma jeszcze wiersza statystyk
+    @JsonIgnore
+    private final Long version;
+
+    public BookDetails(Book book, List<CommentView> comments, Long version) {
+        this.id = book.getId();
+        this.title = book.getTitle();
+        this.author = book.getAuthor();
+        this.description = book.getDescription();
+        this.genre = book.getGenre();
+        this.comments = List.copyOf(comments);
+        this.version = version;
+    }
+}
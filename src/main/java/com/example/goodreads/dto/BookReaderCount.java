@@ -0,0 +1,4 @@
+package com.example.goodreads.dto;
+
+public record BookReaderCount(Long id, String title, String author, long readerCount) {
+}
@@ -0,0 +1,5 @@
+package com.example.goodreads.dto;
+
+// Wiersz statystyki /average-readed - tylko kolumny potrzebne panelowi, bez encji Book i jej komentarzy
+public record BookReadingStats(Long id, String title, String author, long readCount, Double averageRating) {
+}
@@ -0,0 +1,32 @@
+package com.example.goodreads.dto;
+
+import com.example.goodreads.model.Book;
+import com.example.goodreads.model.Comment;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BookSummary {
+    private final Long id;
+    private final String title;
+    private final String author;
+    private final String description;
+    private final String genre;
+    private final long commentCount;
+    private final Double averageRating;
+    private final List<Comment> comments;
+
+    public BookSummary(Book book, long commentCount, Double averageRating, List<Comment> comments) {
+        this.id = book.getId();
+        this.title = book.getTitle();
+        this.author = book.getAuthor();
+        this.description = book.getDescription();
+        this.genre = book.getGenre();
+        this.commentCount = commentCount;
+        this.averageRating = averageRating;
+        this.comments = comments;
+    }
+}
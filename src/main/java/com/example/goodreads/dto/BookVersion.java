@@ -0,0 +1,5 @@
+package com.example.goodreads.dto;
+
+// Wersja treści książki z book_stats - materiał na ETag listy książek
+public record BookVersion(Long bookId, long version) {
+}
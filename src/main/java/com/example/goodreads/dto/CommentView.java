@@ -0,0 +1,17 @@
+package com.example.goodreads.dto;
+
+import com.example.goodreads.model.Comment;
+import lombok.Getter;
+
+@Getter
+public class CommentView {
+    private final Long id;
+    private final String content;
+    private final int rating;
+
+    public CommentView(Comment comment) {
+        this.id = comment.getId();
+        this.content = comment.getContent();
+        this.rating = comment.getRating();
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.goodreads.dto;
+
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+public class ImportReport {
+    private final long total;
+    private final long imported;
+    private final long rejected;
+    private final long elapsedMillis;
+    private final double rowsPerSecond;
+    private final List<RecordError> errors;
+    // Raport błędów jest ograniczony, więc przy dużych plikach mówimy wprost, że zawiera tylko część z nich
+    private final boolean errorsTruncated;
+
+    public ImportReport(long total, long imported, long elapsedMillis, List<RecordError> errors, boolean errorsTruncated) {
+        this.total = total;
+        this.imported = imported;
+        this.rejected = total - imported;
+        this.elapsedMillis = elapsedMillis;
+        this.rowsPerSecond = elapsedMillis == 0 ? imported : imported * 1000.0 / elapsedMillis;
+        this.errors = List.copyOf(errors);
+        this.errorsTruncated = errorsTruncated;
+    }
+
+    @Getter
+    public static class RecordError {
+        private final long record;
+        private final String message;
+
+        public RecordError(long record, String message) {
+            this.record = record;
+            this.message = message;
+        }
+    }
+}
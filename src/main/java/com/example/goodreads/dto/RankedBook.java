@@ -0,0 +1,18 @@
+package com.example.goodreads.dto;
+
+import lombok.Getter;
+
+@Getter
+public class RankedBook {
+    private final Long id;
+    private final String title;
+    private final String author;
+    private final double score;
+
+    public RankedBook(Long id, String title, String author, double score) {
+        this.id = id;
+        this.title = title;
+        this.author = author;
+        this.score = score;
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.goodreads.dto;
+
+import lombok.Getter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Getter
+public class RatingDistribution {
+    private final Long bookId;
+    private final Map<Integer, Long> counts;
+    private final long total;
+    private final Double averageRating;
+
+    // histogram[i] to liczba ocen i+1
+    public RatingDistribution(Long bookId, long[] histogram) {
+        this.bookId = bookId;
+        this.counts = new LinkedHashMap<>();
+        long count = 0;
+        long sum = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            counts.put(i + 1, histogram[i]);
+            count += histogram[i];
+            sum += (i + 1) * histogram[i];
+        }
+        this.total = count;
+        this.averageRating = count == 0 ? null : (double) sum / count;
+    }
+}
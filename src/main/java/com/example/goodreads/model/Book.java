@@ -5,6 +5,7 @@ import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.BatchSize;
 
 import java.util.List;
 
@@ -32,6 +33,8 @@ public class Book {
     @Size(max = 50, message = "Genre must be at most 50 characters")
     private String genre;
 
+    // Leniwe komentarze kilku książek (np. przy serializacji strony półki) ładujemy jedną paczką
+    @BatchSize(size = 100)
     @OneToMany(mappedBy = "book", cascade = CascadeType.ALL)
     private List<Comment> comments;
 }
\ No newline at end of file
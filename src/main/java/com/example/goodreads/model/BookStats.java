@@ -0,0 +1,57 @@
+package com.example.goodreads.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// Zagregowane statystyki książki, aktualizowane przy każdej zmianie komentarzy i półek użytkowników
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(indexes = {
+        @Index(name = "idx_book_stats_rating_sum", columnList = "ratingSum"),
+        @Index(name = "idx_book_stats_comment_count", columnList = "commentCount"),
+        @Index(name = "idx_book_stats_read_count", columnList = "readCount"),
+        @Index(name = "idx_book_stats_reader_count", columnList = "readerCount")
+})
+public class BookStats {
+    @Id
+    private Long bookId;
+
+    private long ratingSum;
+
+    private long commentCount;
+
+    private long commentLengthSum;
+
+    private long readCount;
+
+    private long readerCount;
+
+    // Rozkład ocen 1-5, aktualizowany tym samym UPDATE co suma ocen
+    private long rating1;
+
+    private long rating2;
+
+    private long rating3;
+
+    private long rating4;
+
+    private long rating5;
+
+    // Rośnie przy każdej zmianie danych książki lub jej komentarzy, w tej samej transakcji co zmiana; z niej powstają ETagi
+    private long version;
+
+    public long[] getRatingHistogram() {
+        return new long[]{rating1, rating2, rating3, rating4, rating5};
+    }
+
+    public BookStats(Long bookId) {
+        this.bookId = bookId;
+    }
+}
@@ -9,9 +9,14 @@ import jakarta.validation.constraints.Size;
 import lombok.Getter;
 import lombok.Setter;
 
+// Indeksy pod stronicowanie komentarzy książki kursorem (po ocenie i po ID)
 @Getter
 @Setter
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_comment_book_rating_id", columnList = "book_id, rating, id"),
+        @Index(name = "idx_comment_book_id", columnList = "book_id, id")
+})
 public class Comment {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -26,7 +31,7 @@ public class Comment {
     private int rating;
 
     @JsonIgnore
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "book_id")
     private Book book;
 
@@ -7,6 +7,7 @@ import lombok.Data;
 
 @Entity
 @Data
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_users_book_username_book", columnNames = {"username", "book_id"}))
 public class UsersBook {
 
     @Id
@@ -24,6 +25,11 @@ public class UsersBook {
     @Enumerated(EnumType.STRING)
     private Status status = Status.UNREAD;
 
+    // Wpisy UNREAD nie są zapisywane i nie mają id - status zmienia się wtedy przez PUT /book/{bookId}/status
+    public Long getBookId() {
+        return book != null ? book.getId() : null;
+    }
+
     public enum Status {
         READED,
         WANT_READ,
@@ -0,0 +1,9 @@
+package com.example.goodreads.repository;
+
+public interface BookCommentStats {
+    Long getBookId();
+
+    long getCommentCount();
+
+    Double getAverageRating();
+}
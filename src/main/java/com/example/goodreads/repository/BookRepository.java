@@ -1,17 +1,28 @@
 package com.example.goodreads.repository;
 
+import com.example.goodreads.dto.BookCommentLength;
+import com.example.goodreads.dto.BookReaderCount;
+import com.example.goodreads.dto.BookReadingStats;
 import com.example.goodreads.model.Book;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.util.Collection;
 import java.util.List;
 import org.springframework.data.domain.Pageable;
 
 @Repository
 public interface BookRepository extends JpaRepository<Book, Long> {
-    List<Book> findByTitleContainingIgnoreCase(String title);
+    List<Book> findByTitleContainingIgnoreCase(String title, Pageable pageable);
     Book findById(long id);
 
+    @Query("SELECT b FROM Book b WHERE b.id > :afterId ORDER BY b.id ASC")
+    List<Book> findPageAfter(@Param("afterId") long afterId, Pageable pageable);
+
+    @Query("SELECT b.id FROM Book b WHERE b.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
 
     @Query("SELECT b.id, b.title, b.author, SUM(c.rating) AS totalRating " +
             "FROM Book b LEFT JOIN b.comments c " +
@@ -25,29 +36,31 @@ public interface BookRepository extends JpaRepository<Book, Long> {
             "ORDER BY commentCount DESC")
     List<Object[]> findTop3MostCommentedBooks(Pageable pageable);
 
-    @Query("SELECT b, " +
-            "       COUNT(ub) AS readCount, " +
-            "       AVG(c.rating) AS averageRating " +
-            "FROM Book b " +
-            "LEFT JOIN UsersBook ub ON ub.book = b AND ub.status = com.example.goodreads.model.UsersBook.Status.READED " +
-            "LEFT JOIN Comment c ON c.book = b " +
-            "GROUP BY b " +
-            "ORDER BY readCount DESC, AVG(c.rating) DESC")
-    List<Object[]> findBooksWithReadCountAndAverageRating();
+    // Każda statystyka liczona osobnym podzapytaniem, żeby złączenie czytelników z komentarzami nie mnożyło wierszy
+    @Query("""
+    SELECT new com.example.goodreads.dto.BookReadingStats(b.id, b.title, b.author,
+           (SELECT COUNT(ub) FROM UsersBook ub
+            WHERE ub.book.id = b.id AND ub.status = com.example.goodreads.model.UsersBook.Status.READED) AS readCount,
+           (SELECT AVG(c.rating) FROM Comment c WHERE c.book.id = b.id) AS averageRating)
+    FROM Book b
+    ORDER BY readCount DESC, averageRating DESC
+    """)
+    List<BookReadingStats> findBooksWithReadCountAndAverageRating();
 
-    @Query("SELECT b, AVG(LENGTH(c.content)) FROM Book b " +
-            "LEFT JOIN b.comments c GROUP BY b.id " +
-            "ORDER BY AVG(LENGTH(c.content)) ASC")
-    List<Object[]> findAverageCommentLengthPerBook();
+    @Query("SELECT new com.example.goodreads.dto.BookCommentLength(b.id, b.title, b.author, " +
+            "       AVG(LENGTH(c.content)) AS averageLength) " +
+            "FROM Book b LEFT JOIN b.comments c GROUP BY b.id, b.title, b.author " +
+            "ORDER BY averageLength ASC")
+    List<BookCommentLength> findAverageCommentLengthPerBook();
 
 
     @Query("""
-    SELECT b, COUNT(ub)
+    SELECT new com.example.goodreads.dto.BookReaderCount(b.id, b.title, b.author, COUNT(ub))
     FROM Book b
     LEFT JOIN UsersBook ub ON b.id = ub.book.id
-    GROUP BY b
+    GROUP BY b.id, b.title, b.author
     """)
-    List<Object[]> findBooksWithReadersCount();
+    List<BookReaderCount> findBooksWithReadersCount();
 
 
 }
\ No newline at end of file
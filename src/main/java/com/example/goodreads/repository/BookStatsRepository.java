@@ -0,0 +1,162 @@
+package com.example.goodreads.repository;
+
+import com.example.goodreads.dto.BookCommentLength;
+import com.example.goodreads.dto.BookReaderCount;
+import com.example.goodreads.dto.BookReadingStats;
+import com.example.goodreads.dto.BookVersion;
+import com.example.goodreads.model.BookStats;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface BookStatsRepository extends JpaRepository<BookStats, Long> {
+
+    @Modifying
+    @Query("UPDATE BookStats s SET s.ratingSum = s.ratingSum + :ratingDelta, " +
+            "s.commentCount = s.commentCount + :commentDelta, " +
+            "s.commentLengthSum = s.commentLengthSum + :lengthDelta, " +
+            "s.rating1 = s.rating1 + :rating1Delta, s.rating2 = s.rating2 + :rating2Delta, " +
+            "s.rating3 = s.rating3 + :rating3Delta, s.rating4 = s.rating4 + :rating4Delta, " +
+            "s.rating5 = s.rating5 + :rating5Delta, s.version = s.version + 1 " +
+            "WHERE s.bookId = :bookId")
+    int applyCommentDelta(@Param("bookId") Long bookId,
+                          @Param("ratingDelta") long ratingDelta,
+                          @Param("commentDelta") long commentDelta,
+                          @Param("lengthDelta") long lengthDelta,
+                          @Param("rating1Delta") long rating1Delta,
+                          @Param("rating2Delta") long rating2Delta,
+                          @Param("rating3Delta") long rating3Delta,
+                          @Param("rating4Delta") long rating4Delta,
+                          @Param("rating5Delta") long rating5Delta);
+
+    // histogramDelta[i] to zmiana liczby ocen i+1.
+    // Rozkład ocen nie ma osobnych wierszy-slotów: każde dodanie, edycja i usunięcie komentarza aktualizuje jeden
+    // wiersz książki, więc równoległe zapisy popularnej książki czekają na jego blokadę do końca transakcji.
+    // Łagodzi to tylko zbiorczy zapis kolejki komentarzy (jedna zmiana na książkę w paczce)
+    default int applyCommentDelta(Long bookId, long ratingDelta, long commentDelta, long lengthDelta,
+                                  long[] histogramDelta) {
+        return applyCommentDelta(bookId, ratingDelta, commentDelta, lengthDelta, histogramDelta[0],
+                histogramDelta[1], histogramDelta[2], histogramDelta[3], histogramDelta[4]);
+    }
+
+    @Modifying
+    @Query("UPDATE BookStats s SET s.readCount = s.readCount + :readDelta, " +
+            "s.readerCount = s.readerCount + :readerDelta " +
+            "WHERE s.bookId = :bookId")
+    int applyShelfDelta(@Param("bookId") Long bookId,
+                        @Param("readDelta") long readDelta,
+                        @Param("readerDelta") long readerDelta);
+
+    // Zmiana treści bez zmiany liczników (edycja książki, komentarz o tej samej ocenie i długości)
+    @Modifying
+    @Query("UPDATE BookStats s SET s.version = s.version + 1 WHERE s.bookId = :bookId")
+    int bumpVersion(@Param("bookId") Long bookId);
+
+    @Query("SELECT s.version FROM BookStats s WHERE s.bookId = :bookId")
+    Optional<Long> findVersion(@Param("bookId") Long bookId);
+
+    @Query("SELECT new com.example.goodreads.dto.BookVersion(s.bookId, s.version) FROM BookStats s " +
+            "WHERE s.bookId > :afterId ORDER BY s.bookId ASC")
+    List<BookVersion> findVersionsAfter(@Param("afterId") long afterId, Pageable pageable);
+
+    @Query("SELECT new com.example.goodreads.dto.BookVersion(s.bookId, s.version) FROM BookStats s " +
+            "WHERE s.bookId IN :bookIds")
+    List<BookVersion> findVersions(@Param("bookIds") Collection<Long> bookIds);
+
+    // Uzupełnia brakujące wiersze (np. po wdrożeniu na istniejącej bazie) na podstawie danych źródłowych
+    @Modifying
+    @Query("""
+    INSERT INTO BookStats (bookId, ratingSum, commentCount, commentLengthSum, readCount, readerCount,
+                           rating1, rating2, rating3, rating4, rating5, version)
+    SELECT b.id,
+           COALESCE((SELECT SUM(c.rating) FROM Comment c WHERE c.book.id = b.id), 0),
+           (SELECT COUNT(c) FROM Comment c WHERE c.book.id = b.id),
+           COALESCE((SELECT SUM(LENGTH(c.content)) FROM Comment c WHERE c.book.id = b.id), 0),
+           (SELECT COUNT(ub) FROM UsersBook ub WHERE ub.book.id = b.id
+                AND ub.status = com.example.goodreads.model.UsersBook.Status.READED),
+           (SELECT COUNT(ub) FROM UsersBook ub WHERE ub.book.id = b.id),
+           (SELECT COUNT(c) FROM Comment c WHERE c.book.id = b.id AND c.rating = 1),
+           (SELECT COUNT(c) FROM Comment c WHERE c.book.id = b.id AND c.rating = 2),
+           (SELECT COUNT(c) FROM Comment c WHERE c.book.id = b.id AND c.rating = 3),
+           (SELECT COUNT(c) FROM Comment c WHERE c.book.id = b.id AND c.rating = 4),
+           (SELECT COUNT(c) FROM Comment c WHERE c.book.id = b.id AND c.rating = 5),
+           0L
+    FROM Book b
+    WHERE NOT EXISTS (SELECT s FROM BookStats s WHERE s.bookId = b.id)
+    """)
+    int insertMissing();
+
+    // Przelicza wskazane wiersze od nowa z danych źródłowych
+    @Modifying
+    @Query("""
+    UPDATE BookStats s SET
+           s.ratingSum = COALESCE((SELECT SUM(c.rating) FROM Comment c WHERE c.book.id = s.bookId), 0),
+           s.commentCount = (SELECT COUNT(c) FROM Comment c WHERE c.book.id = s.bookId),
+           s.commentLengthSum = COALESCE((SELECT SUM(LENGTH(c.content)) FROM Comment c WHERE c.book.id = s.bookId), 0),
+           s.readCount = (SELECT COUNT(ub) FROM UsersBook ub WHERE ub.book.id = s.bookId
+                AND ub.status = com.example.goodreads.model.UsersBook.Status.READED),
+           s.readerCount = (SELECT COUNT(ub) FROM UsersBook ub WHERE ub.book.id = s.bookId),
+           s.rating1 = (SELECT COUNT(c) FROM Comment c WHERE c.book.id = s.bookId AND c.rating = 1),
+           s.rating2 = (SELECT COUNT(c) FROM Comment c WHERE c.book.id = s.bookId AND c.rating = 2),
+           s.rating3 = (SELECT COUNT(c) FROM Comment c WHERE c.book.id = s.bookId AND c.rating = 3),
+           s.rating4 = (SELECT COUNT(c) FROM Comment c WHERE c.book.id = s.bookId AND c.rating = 4),
+           s.rating5 = (SELECT COUNT(c) FROM Comment c WHERE c.book.id = s.bookId AND c.rating = 5),
+           s.version = s.version + 1
+    WHERE s.bookId IN :bookIds
+    """)
+    int recount(@Param("bookIds") Collection<Long> bookIds);
+
+    // Wiersze sprzed dodania rozkładu ocen mają zera - przeliczamy tylko te, które nie zgadzają się z liczbą komentarzy
+    @Modifying
+    @Query("""
+    UPDATE BookStats s SET
+           s.rating1 = (SELECT COUNT(c) FROM Comment c WHERE c.book.id = s.bookId AND c.rating = 1),
+           s.rating2 = (SELECT COUNT(c) FROM Comment c WHERE c.book.id = s.bookId AND c.rating = 2),
+           s.rating3 = (SELECT COUNT(c) FROM Comment c WHERE c.book.id = s.bookId AND c.rating = 3),
+           s.rating4 = (SELECT COUNT(c) FROM Comment c WHERE c.book.id = s.bookId AND c.rating = 4),
+           s.rating5 = (SELECT COUNT(c) FROM Comment c WHERE c.book.id = s.bookId AND c.rating = 5)
+    WHERE s.rating1 + s.rating2 + s.rating3 + s.rating4 + s.rating5 <> s.commentCount
+    """)
+    int recountRatingHistograms();
+
+    // Nowo zaimportowane książki nie mają jeszcze komentarzy ani czytelników
+    @Modifying
+    @Query("INSERT INTO BookStats (bookId, ratingSum, commentCount, commentLengthSum, readCount, readerCount, " +
+            "rating1, rating2, rating3, rating4, rating5, version) " +
+            "SELECT b.id, 0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L FROM Book b WHERE b.id IN :bookIds")
+    int insertEmpty(@Param("bookIds") Collection<Long> bookIds);
+
+    @Query("SELECT b.id, b.title, b.author, s.ratingSum AS totalRating " +
+            "FROM BookStats s JOIN Book b ON b.id = s.bookId " +
+            "ORDER BY s.ratingSum DESC")
+    List<Object[]> findTotalRatingForBooks();
+
+    @Query("SELECT b.id, b.title, b.author, s.commentCount AS commentCount " +
+            "FROM BookStats s JOIN Book b ON b.id = s.bookId " +
+            "ORDER BY s.commentCount DESC")
+    List<Object[]> findMostCommentedBooks(Pageable pageable);
+
+    @Query("SELECT new com.example.goodreads.dto.BookReadingStats(b.id, b.title, b.author, s.readCount AS readCount, " +
+            "       CASE WHEN s.commentCount = 0 THEN NULL ELSE 1.0 * s.ratingSum / s.commentCount END AS averageRating) " +
+            "FROM BookStats s JOIN Book b ON b.id = s.bookId " +
+            "ORDER BY readCount DESC, averageRating DESC")
+    List<BookReadingStats> findBooksWithReadCountAndAverageRating();
+
+    @Query("SELECT new com.example.goodreads.dto.BookCommentLength(b.id, b.title, b.author, " +
+            "       CASE WHEN s.commentCount = 0 THEN NULL ELSE 1.0 * s.commentLengthSum / s.commentCount END AS averageLength) " +
+            "FROM BookStats s JOIN Book b ON b.id = s.bookId " +
+            "ORDER BY averageLength ASC")
+    List<BookCommentLength> findAverageCommentLengthPerBook();
+
+    @Query("SELECT new com.example.goodreads.dto.BookReaderCount(b.id, b.title, b.author, s.readerCount) " +
+            "FROM BookStats s JOIN Book b ON b.id = s.bookId")
+    List<BookReaderCount> findBooksWithReadersCount();
+}
@@ -1,12 +1,62 @@
 package com.example.goodreads.repository;
 
 import com.example.goodreads.model.Comment;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface CommentRepository extends JpaRepository<Comment, Long> {
-    List<Comment> findByBookId(int bookId);
+    // Stronicowanie kursorem - każda strona to zakres w indeksie (book_id, id) lub (book_id, rating, id),
+    // więc dalekie strony kosztują tyle samo co pierwsza
+    @Query("SELECT c FROM Comment c WHERE c.book.id = :bookId AND c.id > :afterId ORDER BY c.id ASC")
+    List<Comment> findPageByIdAfter(@Param("bookId") Long bookId, @Param("afterId") long afterId, Pageable pageable);
+
+    @Query("SELECT c FROM Comment c WHERE c.book.id = :bookId " +
+            "AND (c.rating < :rating OR (c.rating = :rating AND c.id < :beforeId)) " +
+            "ORDER BY c.rating DESC, c.id DESC")
+    List<Comment> findPageByRatingAfter(@Param("bookId") Long bookId, @Param("rating") int rating,
+                                        @Param("beforeId") long beforeId, Pageable pageable);
+
+    @Query("SELECT c FROM Comment c WHERE c.book.id IN :bookIds ORDER BY c.id")
+    List<Comment> findByBookIds(@Param("bookIds") Collection<Long> bookIds);
+
+    @Query("SELECT c.book.id AS bookId, COUNT(c) AS commentCount, AVG(c.rating) AS averageRating " +
+            "FROM Comment c WHERE c.book.id IN :bookIds GROUP BY c.book.id")
+    List<BookCommentStats> findCommentStatsByBookIds(@Param("bookIds") Collection<Long> bookIds);
+
+    @Query("SELECT c.rating, COUNT(c) FROM Comment c WHERE c.book.id = :bookId GROUP BY c.rating")
+    List<Object[]> countRatingsByBookId(@Param("bookId") Long bookId);
+
+    // Blokada do końca transakcji - równoległa edycja tego samego komentarza czeka, zamiast poprawiać
+    // statystyki względem tej samej, już nieaktualnej oceny i długości
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c.rating AS rating, c.content AS content FROM Comment c " +
+            "WHERE c.id = :commentId AND c.book.id = :bookId")
+    Optional<CommentSnapshot> findSnapshot(@Param("bookId") Long bookId, @Param("commentId") Long commentId);
+
+    // Warunek na książkę w samym zapytaniu - liczba zmienionych wierszy mówi, czy komentarz należał do tej książki
+    @Modifying
+    @Query("UPDATE Comment c SET c.content = :content, c.rating = :rating " +
+            "WHERE c.id = :commentId AND c.book.id = :bookId")
+    int updateOnBook(@Param("bookId") Long bookId, @Param("commentId") Long commentId,
+                     @Param("content") String content, @Param("rating") int rating);
+
+    @Modifying
+    @Query("DELETE FROM Comment c WHERE c.id = :commentId AND c.book.id = :bookId")
+    int deleteFromBook(@Param("bookId") Long bookId, @Param("commentId") Long commentId);
+
+    // Wszystkie komentarze książki jednym zapytaniem - kaskada usuwałaby je po jednym
+    @Modifying
+    @Query("DELETE FROM Comment c WHERE c.book.id = :bookId")
+    int deleteByBookId(@Param("bookId") Long bookId);
 }
@@ -0,0 +1,8 @@
+package com.example.goodreads.repository;
+
+// Wartości komentarza potrzebne do poprawienia statystyk przy edycji i usuwaniu
+public interface CommentSnapshot {
+    int getRating();
+
+    String getContent();
+}
@@ -1,20 +1,45 @@
 package com.example.goodreads.repository;
 
+import com.example.goodreads.model.Book;
 import com.example.goodreads.model.UsersBook;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface UsersBookRepository extends JpaRepository<UsersBook, Long> {
 
-    // Wyszukaj książki po nazwie użytkownika
+    // Wyszukaj książki po nazwie użytkownika; książki w tym samym zapytaniu. Komentarzy nie dołączamy -
+    // złączenie powielałoby wiersz półki dla każdego komentarza, a @BatchSize na Book.comments ładuje je paczkami
+    @EntityGraph(attributePaths = "book")
     List<UsersBook> findByUsername(String username);
 
     // Wyszukaj książki po nazwie użytkownika i statusie
+    @EntityGraph(attributePaths = "book")
     List<UsersBook> findByUsernameAndStatus(String username, UsersBook.Status status);
 
     // Wyszukaj książki po książce, jeśli chcesz móc filtrować po książkach
     List<UsersBook> findByBook_Id(Long bookId);
+
+    Optional<UsersBook> findByUsernameAndBook_Id(String username, Long bookId);
+
+    // Zapisane wpisy użytkownika dla strony katalogu
+    @EntityGraph(attributePaths = "book")
+    List<UsersBook> findByUsernameAndBook_IdIn(String username, Collection<Long> bookIds);
+
+    // Półka jest rzadka: UNREAD to "wszystkie książki katalogu bez zapisanego wpisu użytkownika"
+    @Query("SELECT b FROM Book b WHERE b.id > :afterId AND NOT EXISTS " +
+            "(SELECT ub FROM UsersBook ub WHERE ub.username = :username AND ub.book.id = b.id) " +
+            "ORDER BY b.id ASC")
+    List<Book> findUnreadBooks(@Param("username") String username,
+                               @Param("afterId") long afterId,
+                               Pageable pageable);
 }
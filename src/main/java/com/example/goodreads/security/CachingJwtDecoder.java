@@ -0,0 +1,28 @@
+package com.example.goodreads.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtException;
+
+// Zapamiętuje zweryfikowane tokeny, żeby seria żądań z tym samym tokenem nie sprawdzała podpisu za każdym razem
+public class CachingJwtDecoder implements JwtDecoder {
+
+    private final JwtDecoder delegate;
+    private final Cache<String, Jwt> cache;
+
+    public CachingJwtDecoder(JwtDecoder delegate, long maxSize) {
+        this.delegate = delegate;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new TokenExpiry<String, Jwt>(Jwt::getExpiresAt))
+                .build();
+    }
+
+    @Override
+    public Jwt decode(String token) throws JwtException {
+        // Niepoprawny token rzuca wyjątek w delegacie, więc nigdy nie trafia do cache
+        return cache.get(TokenDigest.of(token), digest -> delegate.decode(token));
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.goodreads.security;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+public final class CurrentUser {
+
+    private CurrentUser() {
+    }
+
+    // Nazwa zalogowanego użytkownika albo null, gdy żądanie nie jest uwierzytelnione
+    public static String username() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()) {
+            return null;
+        }
+        return authentication.getName();
+    }
+
+    public static boolean hasRole(Role role) {
+        return (roleMask() & role.bit()) != 0;
+    }
+
+    public static boolean hasAnyRole(int requiredMask) {
+        return (roleMask() & requiredMask) != 0;
+    }
+
+    static int roleMask() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null) {
+            return 0;
+        }
+        if (authentication instanceof RoleAwareAuthenticationToken token) {
+            return token.getRoleMask();
+        }
+        // Tokeny spoza JwtAuthConverter (np. w testach) nie mają maski - liczymy ją z uprawnień
+        return Role.maskOf(authentication.getAuthorities());
+    }
+}
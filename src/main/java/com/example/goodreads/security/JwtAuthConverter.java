@@ -1,5 +1,7 @@
 package com.example.goodreads.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.convert.converter.Converter;
 import org.springframework.lang.NonNull;
@@ -8,10 +10,10 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.oauth2.jwt.Jwt;
 import org.springframework.security.oauth2.jwt.JwtClaimNames;
-import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
 import org.springframework.security.oauth2.server.resource.authentication.JwtGrantedAuthoritiesConverter;
 import org.springframework.stereotype.Component;
 
+import java.time.Instant;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Map;
@@ -30,18 +32,33 @@ public class JwtAuthConverter implements Converter<Jwt, AbstractAuthenticationTo
     @Value("${jwt.auth.converter.resource-id}")
     private String resourceId;
 
+    // Uprawnienia wyliczamy raz na token; wpis wygasa razem z tokenem
+    private final Cache<String, ResolvedToken> resolvedTokens;
+
+    public JwtAuthConverter(@Value("${goodreads.security.jwt.cache.max-size:10000}") long maxCachedTokens) {
+        this.resolvedTokens = Caffeine.newBuilder()
+                .maximumSize(maxCachedTokens)
+                .expireAfter(new TokenExpiry<String, ResolvedToken>(ResolvedToken::expiresAt))
+                .build();
+    }
+
     @Override
     public AbstractAuthenticationToken convert(@NonNull Jwt jwt) {
+        ResolvedToken resolved = resolvedTokens.get(TokenDigest.of(jwt.getTokenValue()), digest -> resolve(jwt));
+        // Nowy obiekt na każde żądanie - Spring dopisuje do niego szczegóły konkretnego żądania
+        return new RoleAwareAuthenticationToken(jwt, resolved.authorities(), resolved.name(), resolved.roleMask());
+    }
+
+    ResolvedToken resolve(Jwt jwt) {
         Collection<GrantedAuthority> authorities = Stream.concat(
                 jwtGrantedAuthoritiesConverter.convert(jwt).stream(),
                 extractResourceRoles(jwt).stream()
-        ).collect(Collectors.toSet());
+        ).collect(Collectors.toUnmodifiableSet());
+
+        return new ResolvedToken(authorities, getPrincipleClaimName(jwt), Role.maskOf(authorities), jwt.getExpiresAt());
+    }
 
-        return new JwtAuthenticationToken(
-                jwt,
-                authorities,
-                getPrincipleClaimName(jwt)
-        );
+    record ResolvedToken(Collection<GrantedAuthority> authorities, String name, int roleMask, Instant expiresAt) {
     }
 
     private String getPrincipleClaimName(Jwt jwt) {
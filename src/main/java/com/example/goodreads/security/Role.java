@@ -0,0 +1,47 @@
+package com.example.goodreads.security;
+
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+
+// Role aplikacji zakodowane jako bity - sprawdzenie uprawnień to jedna operacja AND zamiast porównywania napisów
+public enum Role {
+    CLIENT_USER("ROLE_client_user"),
+    CLIENT_ADMIN("ROLE_client_admin");
+
+    private final String authority;
+    private final int bit;
+
+    Role(String authority) {
+        this.authority = authority;
+        this.bit = 1 << ordinal();
+    }
+
+    public String authority() {
+        return authority;
+    }
+
+    public int bit() {
+        return bit;
+    }
+
+    public static int maskOf(Roles roles) {
+        int mask = 0;
+        for (Role role : roles.value()) {
+            mask |= role.bit;
+        }
+        return mask;
+    }
+
+    public static int maskOf(Collection<? extends GrantedAuthority> authorities) {
+        int mask = 0;
+        for (GrantedAuthority grantedAuthority : authorities) {
+            for (Role role : values()) {
+                if (role.authority.equals(grantedAuthority.getAuthority())) {
+                    mask |= role.bit;
+                }
+            }
+        }
+        return mask;
+    }
+}
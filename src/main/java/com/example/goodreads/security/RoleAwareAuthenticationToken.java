@@ -0,0 +1,23 @@
+package com.example.goodreads.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationToken;
+
+import java.util.Collection;
+
+// Token z maską ról wyliczoną raz w JwtAuthConverter
+public class RoleAwareAuthenticationToken extends JwtAuthenticationToken {
+
+    private final int roleMask;
+
+    public RoleAwareAuthenticationToken(Jwt jwt, Collection<? extends GrantedAuthority> authorities, String name,
+                                        int roleMask) {
+        super(jwt, authorities, name);
+        this.roleMask = roleMask;
+    }
+
+    public int getRoleMask() {
+        return roleMask;
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.goodreads.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.lang.NonNull;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Sprawdza @Roles na masce z tokenu; wymagana maska jest wyliczana raz na metodę kontrolera
+@Component
+public class RoleInterceptor implements HandlerInterceptor {
+
+    private static final int NO_ROLES_REQUIRED = 0;
+
+    private final Map<Method, Integer> requiredMasks = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean preHandle(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                             @NonNull Object handler) {
+        if (!(handler instanceof HandlerMethod handlerMethod)) {
+            return true;
+        }
+        int requiredMask = requiredMasks.computeIfAbsent(handlerMethod.getMethod(),
+                method -> requiredMask(handlerMethod));
+        if (requiredMask != NO_ROLES_REQUIRED && !CurrentUser.hasAnyRole(requiredMask)) {
+            throw new AccessDeniedException("Brak wymaganej roli");
+        }
+        return true;
+    }
+
+    private int requiredMask(HandlerMethod handlerMethod) {
+        Roles roles = AnnotatedElementUtils.findMergedAnnotation(handlerMethod.getMethod(), Roles.class);
+        if (roles == null) {
+            roles = AnnotatedElementUtils.findMergedAnnotation(handlerMethod.getBeanType(), Roles.class);
+        }
+        return roles == null ? NO_ROLES_REQUIRED : Role.maskOf(roles);
+    }
+}
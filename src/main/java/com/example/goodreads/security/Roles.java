@@ -0,0 +1,13 @@
+package com.example.goodreads.security;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Wymagane role kontrolera lub metody, sprawdzane przez RoleInterceptor na masce bitowej (wystarczy jedna z ról)
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Roles {
+    Role[] value();
+}
@@ -2,6 +2,7 @@ package com.example.goodreads.security;
 
 import jakarta.servlet.Filter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
@@ -25,6 +26,11 @@ public class SecurityConfig {
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(authorizeHttpRequests ->
                         authorizeHttpRequests
+                                // Actuator nasłuchuje na osobnym porcie zarządzania; health i prometheus bez tokenu
+                                .requestMatchers(EndpointRequest.to("health", "prometheus"))
+                                .permitAll()
+                                .requestMatchers(EndpointRequest.toAnyEndpoint())
+                                .hasAuthority(Role.CLIENT_ADMIN.authority())
                                 .anyRequest()
                                 .authenticated()
                 );
@@ -0,0 +1,23 @@
+package com.example.goodreads.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+// Klucz cache tokenów: skrót SHA-256 zamiast surowego tokenu, żeby zrzut pamięci nie ujawniał ważnych tokenów
+final class TokenDigest {
+
+    private TokenDigest() {
+    }
+
+    static String of(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException ex) {
+            // SHA-256 jest wymagany w każdej implementacji Javy
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.goodreads.security;
+
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.Function;
+
+// Wpis w cache żyje dokładnie do chwili wygaśnięcia tokenu (claim "exp")
+class TokenExpiry<K, V> implements Expiry<K, V> {
+
+    private static final Duration NO_EXPIRY_CLAIM_TTL = Duration.ofMinutes(5);
+
+    private final Function<V, Instant> expiresAt;
+
+    TokenExpiry(Function<V, Instant> expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    @Override
+    public long expireAfterCreate(K key, V value, long currentTime) {
+        Instant expiry = expiresAt.apply(value);
+        if (expiry == null) {
+            return NO_EXPIRY_CLAIM_TTL.toNanos();
+        }
+        return Math.max(0, Duration.between(Instant.now(), expiry).toNanos());
+    }
+
+    @Override
+    public long expireAfterUpdate(K key, V value, long currentTime, long currentDuration) {
+        return expireAfterCreate(key, value, currentTime);
+    }
+
+    @Override
+    public long expireAfterRead(K key, V value, long currentTime, long currentDuration) {
+        return currentDuration;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.goodreads.service;
+
+import com.example.goodreads.dto.BookDetails;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+// Ograniczony rozmiarem i czasem życia cache szczegółów książek; ruch skupia się na kilkuset popularnych tytułach
+@Component
+public class BookCache {
+
+    private final Cache<Long, BookDetails> cache;
+
+    public BookCache(@Value("${goodreads.cache.books.max-size:1000}") long maxSize,
+                     @Value("${goodreads.cache.books.ttl:10m}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    // Wpis jest aktualny, jeśli wczytano go przy wersji nie starszej niż bieżąca - zmiana zapisana przez inną
+    // instancję podbija wersję w bazie i wymusza ponowne wczytanie. Bez wersji nie zapamiętujemy,
+    // brak książki (null z loadera) też nie jest zapamiętywany
+    public BookDetails get(Long bookId, Long version, Function<Long, BookDetails> loader) {
+        if (version == null) {
+            return loader.apply(bookId);
+        }
+        BookDetails cached = cache.getIfPresent(bookId);
+        if (isCurrent(cached, version)) {
+            return cached;
+        }
+        return cache.asMap().compute(bookId, (id, current) -> isCurrent(current, version) ? current : loader.apply(id));
+    }
+
+    private static boolean isCurrent(BookDetails details, long version) {
+        return details != null && details.getVersion() != null && details.getVersion() >= version;
+    }
+
+    public void invalidate(Long bookId) {
+        cache.invalidate(bookId);
+        AfterCommit.run(() -> cache.invalidate(bookId));
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+}
@@ -0,0 +1,260 @@
+package com.example.goodreads.service;
+
+import com.example.goodreads.dto.ImportReport;
+import com.example.goodreads.model.Book;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Import katalogu paczkami: rekordy są czytane strumieniowo, walidowane równolegle i zapisywane wsadowo przez JDBC,
+// więc w pamięci jest naraz tylko jedna paczka i ograniczona lista błędów
+@Slf4j
+@Service
+public class BookImportService {
+
+    private static final String INSERT_BOOK = "INSERT INTO book (title, author, description, genre) VALUES (?, ?, ?, ?)";
+    private static final List<String> CSV_COLUMNS = List.of("title", "author", "description", "genre");
+
+    private final BookService bookService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final int maxErrors;
+
+    public BookImportService(BookService bookService, JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                             Validator validator, ObjectMapper objectMapper,
+                             @Value("${goodreads.import.batch-size:1000}") int batchSize,
+                             @Value("${goodreads.import.max-errors:1000}") int maxErrors) {
+        this.bookService = bookService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.maxErrors = maxErrors;
+    }
+
+    public ImportReport importBooks(ExportFormat format, InputStream in) throws IOException {
+        long start = System.nanoTime();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        RecordSource source = format == ExportFormat.CSV ? csvSource(reader) : ndjsonSource(reader);
+        Errors errors = new Errors(maxErrors);
+
+        long total = 0;
+        long imported = 0;
+        List<ParsedRecord> chunk = new ArrayList<>(batchSize);
+        while (true) {
+            ParsedRecord record;
+            try {
+                record = source.next(total + 1);
+            } catch (IOException ex) {
+                // Dalszej części strumienia nie da się odczytać - zapisujemy to, co już przeczytaliśmy
+                errors.add(total + 1, "Nie udało się odczytać danych: " + ex.getMessage());
+                break;
+            }
+            if (record == null) {
+                break;
+            }
+            total++;
+            chunk.add(record);
+            if (chunk.size() == batchSize) {
+                imported += importChunk(chunk, errors);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            imported += importChunk(chunk, errors);
+        }
+
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        log.info("Import książek: {} rekordów, zapisano {}, czas {} ms", total, imported, elapsedMillis);
+        return new ImportReport(total, imported, elapsedMillis, errors.reported, errors.truncated);
+    }
+
+    private int importChunk(List<ParsedRecord> chunk, Errors errors) {
+        // parallelStream zachowuje kolejność, więc numery rekordów w raporcie są rosnące
+        List<ParsedRecord> validated = chunk.parallelStream()
+                .map(this::validate)
+                .toList();
+
+        List<Book> books = new ArrayList<>(validated.size());
+        List<ParsedRecord> accepted = new ArrayList<>(validated.size());
+        for (ParsedRecord record : validated) {
+            if (record.error() != null) {
+                errors.add(record.number(), record.error());
+            } else {
+                books.add(record.book());
+                accepted.add(record);
+            }
+        }
+        if (books.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                insertBatch(books);
+                bookService.registerImportedBooks(books);
+            });
+            return books.size();
+        } catch (DataAccessException | TransactionException ex) {
+            // TransactionException to np. błąd przy zatwierdzaniu - dotyczy tylko tej paczki, nie całego importu
+            String message = "Nie udało się zapisać paczki rekordów: " + ex.getMostSpecificCause().getMessage();
+            accepted.forEach(record -> errors.add(record.number(), message));
+            return 0;
+        }
+    }
+
+    private ParsedRecord validate(ParsedRecord record) {
+        if (record.error() != null) {
+            return record;
+        }
+        Set<ConstraintViolation<Book>> violations = validator.validate(record.book());
+        if (violations.isEmpty()) {
+            return record;
+        }
+        String message = violations.stream()
+                .sorted(Comparator.comparing(violation -> violation.getPropertyPath().toString()))
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .collect(Collectors.joining("; "));
+        return new ParsedRecord(record.number(), null, message);
+    }
+
+    // Identyfikatory odczytujemy z kluczy wygenerowanych przez wsad, żeby zarejestrować dokładnie te książki
+    private void insertBatch(List<Book> books) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_BOOK, Statement.RETURN_GENERATED_KEYS)) {
+                for (Book book : books) {
+                    statement.setString(1, book.getTitle());
+                    statement.setString(2, book.getAuthor());
+                    statement.setString(3, book.getDescription());
+                    statement.setString(4, book.getGenre());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+                try (ResultSet keys = statement.getGeneratedKeys()) {
+                    Iterator<Book> iterator = books.iterator();
+                    while (keys.next() && iterator.hasNext()) {
+                        iterator.next().setId(keys.getLong(1));
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    private RecordSource ndjsonSource(BufferedReader reader) {
+        return number -> {
+            String line;
+            do {
+                line = reader.readLine();
+                if (line == null) {
+                    return null;
+                }
+            } while (line.isBlank());
+            try {
+                return ParsedRecord.of(number, objectMapper.readValue(line, Book.class));
+            } catch (JsonProcessingException ex) {
+                return new ParsedRecord(number, null, "Niepoprawny JSON: " + ex.getOriginalMessage());
+            }
+        };
+    }
+
+    private RecordSource csvSource(BufferedReader reader) throws IOException {
+        CsvRecordReader csv = new CsvRecordReader(reader);
+        List<String> header = csv.next();
+        if (header == null) {
+            return number -> null;
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        List<String> missing = CSV_COLUMNS.stream().filter(column -> !columns.containsKey(column)).toList();
+        if (!missing.isEmpty()) {
+            throw new IllegalArgumentException("Brak kolumn w nagłówku CSV: " + String.join(", ", missing));
+        }
+
+        return number -> {
+            List<String> fields;
+            do {
+                fields = csv.next();
+                if (fields == null) {
+                    return null;
+                }
+            } while (fields.size() == 1 && fields.get(0).isEmpty());
+            if (fields.size() != header.size()) {
+                return new ParsedRecord(number, null,
+                        "Niepoprawna liczba pól: " + fields.size() + ", oczekiwano " + header.size());
+            }
+            Book book = new Book();
+            book.setTitle(fields.get(columns.get("title")));
+            book.setAuthor(fields.get(columns.get("author")));
+            book.setDescription(fields.get(columns.get("description")));
+            book.setGenre(fields.get(columns.get("genre")));
+            return ParsedRecord.of(number, book);
+        };
+    }
+
+    @FunctionalInterface
+    private interface RecordSource {
+        ParsedRecord next(long number) throws IOException;
+    }
+
+    private record ParsedRecord(long number, Book book, String error) {
+
+        // Identyfikator i komentarze z pliku są ignorowane - książka zawsze dostaje nowe ID
+        static ParsedRecord of(long number, Book book) {
+            book.setId(null);
+            book.setComments(null);
+            return new ParsedRecord(number, book, null);
+        }
+    }
+
+    private static class Errors {
+        private final int limit;
+        private final List<ImportReport.RecordError> reported = new ArrayList<>();
+        private boolean truncated;
+
+        Errors(int limit) {
+            this.limit = limit;
+        }
+
+        void add(long record, String message) {
+            if (reported.size() < limit) {
+                reported.add(new ImportReport.RecordError(record, message));
+            } else {
+                truncated = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.goodreads.service;
+
+import com.example.goodreads.model.BookStats;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+// Rankingi książek trzymane w pamięci jako zbiory uporządkowane po wyniku - top-K to odczyt K pierwszych elementów
+@Component
+public class BookRankings {
+
+    public record Entry(long bookId, double score) {
+    }
+
+    private static final Comparator<Entry> BY_SCORE_DESC = Comparator.comparingDouble(Entry::score).reversed()
+            .thenComparingLong(Entry::bookId);
+
+    private final Map<Long, Counters> counters = new ConcurrentHashMap<>();
+    private final Map<RankingMetric, Ranking> rankings = new EnumMap<>(RankingMetric.class);
+    // Książki usunięte w trakcie ładowania - migawka mogła je jeszcze zawierać
+    private final Set<Long> removedWhileLoading = ConcurrentHashMap.newKeySet();
+    private volatile boolean loading;
+    private volatile boolean ready;
+
+    public BookRankings() {
+        for (RankingMetric metric : RankingMetric.values()) {
+            rankings.put(metric, new Ranking());
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Wywoływane przed odczytem migawki. Zmiany zatwierdzone w trakcie odczytu zbierają się na wyzerowanych
+    // licznikach, a load dodaje do nich migawkę zamiast je nadpisywać
+    public void beginLoad() {
+        ready = false;
+        removedWhileLoading.clear();
+        loading = true;
+        for (Counters bookCounters : counters.values()) {
+            synchronized (bookCounters) {
+                bookCounters.ratingSum = 0;
+                bookCounters.commentCount = 0;
+                bookCounters.readerCount = 0;
+            }
+        }
+    }
+
+    public void load(Collection<BookStats> stats) {
+        if (!loading) {
+            beginLoad();
+        }
+        for (BookStats bookStats : stats) {
+            if (removedWhileLoading.contains(bookStats.getBookId())) {
+                continue;
+            }
+            Counters bookCounters = counters.computeIfAbsent(bookStats.getBookId(), Counters::new);
+            synchronized (bookCounters) {
+                bookCounters.ratingSum += bookStats.getRatingSum();
+                bookCounters.commentCount += bookStats.getCommentCount();
+                bookCounters.readerCount += bookStats.getReaderCount();
+                rerank(bookCounters);
+            }
+        }
+        loading = false;
+        removedWhileLoading.clear();
+        ready = true;
+    }
+
+    public boolean contains(long bookId) {
+        return counters.containsKey(bookId);
+    }
+
+    public void addBook(long bookId) {
+        Counters bookCounters = counters.computeIfAbsent(bookId, Counters::new);
+        synchronized (bookCounters) {
+            rerank(bookCounters);
+        }
+    }
+
+    public void removeBook(long bookId) {
+        if (loading) {
+            removedWhileLoading.add(bookId);
+        }
+        Counters bookCounters = counters.remove(bookId);
+        if (bookCounters != null) {
+            synchronized (bookCounters) {
+                bookCounters.removed = true;
+                rankings.values().forEach(ranking -> ranking.remove(bookId));
+            }
+        }
+    }
+
+    public void applyCommentDelta(long bookId, long ratingDelta, long commentDelta) {
+        Counters bookCounters = countersForDelta(bookId);
+        if (bookCounters == null) {
+            return;
+        }
+        synchronized (bookCounters) {
+            bookCounters.ratingSum += ratingDelta;
+            bookCounters.commentCount += commentDelta;
+            rerank(bookCounters);
+        }
+    }
+
+    public void applyReaderDelta(long bookId, long readerDelta) {
+        Counters bookCounters = countersForDelta(bookId);
+        if (bookCounters == null) {
+            return;
+        }
+        synchronized (bookCounters) {
+            bookCounters.readerCount += readerDelta;
+            rerank(bookCounters);
+        }
+    }
+
+    public List<Entry> top(RankingMetric metric, int k) {
+        return rankings.get(metric).top(k);
+    }
+
+    // Poza ładowaniem liczniki zakłada tylko addBook, więc spóźniona zmiana usuniętej książki jej nie wskrzesza
+    private Counters countersForDelta(long bookId) {
+        if (loading && !removedWhileLoading.contains(bookId)) {
+            return counters.computeIfAbsent(bookId, Counters::new);
+        }
+        return counters.get(bookId);
+    }
+
+    private void rerank(Counters bookCounters) {
+        // Zmiana, która pobrała liczniki tuż przed usunięciem książki, nie może jej z powrotem wstawić do rankingu
+        if (bookCounters.removed) {
+            return;
+        }
+        long bookId = bookCounters.bookId;
+        rankings.get(RankingMetric.COMMENTS).update(bookId, bookCounters.commentCount);
+        rankings.get(RankingMetric.READERS).update(bookId, bookCounters.readerCount);
+        // Książki bez ocen nie mają średniej, więc nie biorą udziału w rankingu ocen
+        if (bookCounters.commentCount > 0) {
+            rankings.get(RankingMetric.RATING).update(bookId, (double) bookCounters.ratingSum / bookCounters.commentCount);
+        } else {
+            rankings.get(RankingMetric.RATING).remove(bookId);
+        }
+    }
+
+    private static final class Counters {
+        private final long bookId;
+        private long ratingSum;
+        private long commentCount;
+        private long readerCount;
+        private boolean removed;
+
+        private Counters(long bookId) {
+            this.bookId = bookId;
+        }
+    }
+
+    private static final class Ranking {
+        private final ConcurrentSkipListSet<Entry> ordered = new ConcurrentSkipListSet<>(BY_SCORE_DESC);
+        private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+        // Wywoływane pod blokadą liczników danej książki, więc wpisy jednej książki się nie przeplatają
+        private void update(long bookId, double score) {
+            Entry entry = new Entry(bookId, score);
+            Entry previous = entries.put(bookId, entry);
+            if (previous != null) {
+                ordered.remove(previous);
+            }
+            ordered.add(entry);
+        }
+
+        private void remove(long bookId) {
+            Entry previous = entries.remove(bookId);
+            if (previous != null) {
+                ordered.remove(previous);
+            }
+        }
+
+        private List<Entry> top(int k) {
+            List<Entry> result = new ArrayList<>(k);
+            Iterator<Entry> iterator = ordered.iterator();
+            while (result.size() < k && iterator.hasNext()) {
+                result.add(iterator.next());
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.goodreads.service;
+
+import com.example.goodreads.model.Book;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+// Odwrócony indeks (token -> książki) po tytule, autorze i gatunku, trzymany w pamięci
+@Component
+public class BookSearchIndex {
+
+    private static final int TITLE_WEIGHT = 4;
+    private static final int AUTHOR_WEIGHT = 2;
+    private static final int GENRE_WEIGHT = 1;
+    // Dokładne trafienie tokenu liczy się podwójnie względem trafienia po prefiksie
+    private static final int EXACT_MATCH_FACTOR = 2;
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+    private final Map<Long, Set<String>> documents = new HashMap<>();
+    private final Set<Long> removedDuringRebuild = new HashSet<>();
+    private boolean rebuilding;
+    private volatile boolean ready;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void index(Book book) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(book.getId());
+            addDocument(book);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long bookId) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(bookId);
+            if (rebuilding) {
+                removedDuringRebuild.add(bookId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void startRebuild() {
+        lock.writeLock().lock();
+        try {
+            rebuilding = true;
+            removedDuringRebuild.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Dokumenty zaindeksowane w trakcie przebudowy są nowsze niż te wczytane z bazy, więc ich nie nadpisujemy
+    public void indexFromRebuild(Collection<Book> books) {
+        lock.writeLock().lock();
+        try {
+            for (Book book : books) {
+                if (!documents.containsKey(book.getId()) && !removedDuringRebuild.contains(book.getId())) {
+                    addDocument(book);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void finishRebuild() {
+        lock.writeLock().lock();
+        try {
+            rebuilding = false;
+            removedDuringRebuild.clear();
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Long> search(String query, int limit) {
+        List<String> queryTokens = tokenize(query);
+        if (queryTokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        Map<Long, Integer> scores = null;
+        lock.readLock().lock();
+        try {
+            for (String queryToken : new LinkedHashSet<>(queryTokens)) {
+                Map<Long, Integer> tokenScores = scoreToken(queryToken);
+                if (scores == null) {
+                    scores = tokenScores;
+                } else {
+                    // Każdy token zapytania musi pasować (AND)
+                    scores.keySet().retainAll(tokenScores.keySet());
+                    scores.replaceAll((id, score) -> score + tokenScores.get(id));
+                }
+                if (scores.isEmpty()) {
+                    return List.of();
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD);
+        normalized = DIACRITICS.matcher(normalized).replaceAll("")
+                .replace('ł', 'l')
+                .replace('Ł', 'L')
+                .toLowerCase(Locale.ROOT);
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARATORS.split(normalized)) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private Map<Long, Integer> scoreToken(String queryToken) {
+        Map<Long, Integer> result = new HashMap<>();
+        SortedMap<String, Map<Long, Integer>> matches =
+                postings.subMap(queryToken, queryToken + Character.MAX_VALUE);
+        for (Map.Entry<String, Map<Long, Integer>> match : matches.entrySet()) {
+            int factor = match.getKey().equals(queryToken) ? EXACT_MATCH_FACTOR : 1;
+            for (Map.Entry<Long, Integer> posting : match.getValue().entrySet()) {
+                result.merge(posting.getKey(), posting.getValue() * factor, Math::max);
+            }
+        }
+        return result;
+    }
+
+    private void addDocument(Book book) {
+        Map<String, Integer> weights = new HashMap<>();
+        addField(weights, book.getTitle(), TITLE_WEIGHT);
+        addField(weights, book.getAuthor(), AUTHOR_WEIGHT);
+        addField(weights, book.getGenre(), GENRE_WEIGHT);
+
+        for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), token -> new HashMap<>())
+                    .put(book.getId(), entry.getValue());
+        }
+        documents.put(book.getId(), weights.keySet());
+    }
+
+    private void addField(Map<String, Integer> weights, String value, int weight) {
+        // Suma wag pól, w których występuje token (bez powtórzeń w obrębie jednego pola)
+        for (String token : new HashSet<>(tokenize(value))) {
+            weights.merge(token, weight, Integer::sum);
+        }
+    }
+
+    private void removeDocument(Long bookId) {
+        Set<String> tokens = documents.remove(bookId);
+        if (tokens == null) {
+            return;
+        }
+        for (String token : tokens) {
+            Map<Long, Integer> posting = postings.get(token);
+            if (posting != null) {
+                posting.remove(bookId);
+                if (posting.isEmpty()) {
+                    postings.remove(token);
+                }
+            }
+        }
+    }
+}
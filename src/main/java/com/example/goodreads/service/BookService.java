@@ -1,53 +1,260 @@
 package com.example.goodreads.service;
 
+import com.example.goodreads.config.ReplicaLagMonitor;
+import com.example.goodreads.config.ReplicaReads;
+import com.example.goodreads.dto.BookCommentLength;
+import com.example.goodreads.dto.BookDetails;
+import com.example.goodreads.dto.BookReaderCount;
+import com.example.goodreads.dto.BookReadingStats;
+import com.example.goodreads.dto.BookSummary;
+import com.example.goodreads.dto.CommentView;
+import com.example.goodreads.dto.CursorPage;
+import com.example.goodreads.dto.RankedBook;
+import com.example.goodreads.dto.RatingDistribution;
 import com.example.goodreads.model.Book;
+import com.example.goodreads.model.Comment;
+import com.example.goodreads.repository.BookCommentStats;
 import com.example.goodreads.repository.BookRepository;
+import com.example.goodreads.repository.CommentRepository;
 import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
 
+@Slf4j
 @Service
 public class BookService {
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private static final int INDEX_REBUILD_BATCH_SIZE = 1000;
+
     private final BookRepository bookRepository;
+    private final CommentRepository commentRepository;
+    private final BookSearchIndex searchIndex;
+    private final BookStatsService bookStatsService;
+    private final BookCache bookCache;
+    private final BookVersions bookVersions;
+    // Dostępny tylko przy skonfigurowanych replikach
+    private final ObjectProvider<ReplicaLagMonitor> replicaLagMonitor;
 
-    public BookService(BookRepository bookRepository) {
+    public BookService(BookRepository bookRepository, CommentRepository commentRepository,
+                       BookSearchIndex searchIndex, BookStatsService bookStatsService, BookCache bookCache,
+                       BookVersions bookVersions, ObjectProvider<ReplicaLagMonitor> replicaLagMonitor) {
         this.bookRepository = bookRepository;
+        this.commentRepository = commentRepository;
+        this.searchIndex = searchIndex;
+        this.bookStatsService = bookStatsService;
+        this.bookCache = bookCache;
+        this.bookVersions = bookVersions;
+        this.replicaLagMonitor = replicaLagMonitor;
+    }
+
+    // Indeks budujemy w tle, do tego czasu wyszukiwanie korzysta z zapytania LIKE
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildSearchIndex() {
+        Thread.ofPlatform().daemon().name("book-search-index").start(this::rebuildSearchIndex);
+    }
+
+    // Czytamy z repliki, która ma już wszystko sprzed startRebuild; zmiany zatwierdzone później indeksują się
+    // na bieżąco i indexFromRebuild ich nie nadpisuje
+    public void rebuildSearchIndex() {
+        searchIndex.startRebuild();
+        try {
+            long rebuildStarted = System.currentTimeMillis();
+            ReplicaLagMonitor monitor = replicaLagMonitor.getIfAvailable();
+            if (monitor != null) {
+                monitor.awaitCaughtUp(rebuildStarted);
+            }
+            long afterId = 0L;
+            List<Book> batch;
+            do {
+                long from = afterId;
+                batch = ReplicaReads.caughtUpTo(rebuildStarted, () ->
+                        bookRepository.findPageAfter(from, PageRequest.of(0, INDEX_REBUILD_BATCH_SIZE)));
+                searchIndex.indexFromRebuild(batch);
+                if (!batch.isEmpty()) {
+                    afterId = batch.get(batch.size() - 1).getId();
+                }
+            } while (batch.size() == INDEX_REBUILD_BATCH_SIZE);
+            searchIndex.finishRebuild();
+            log.info("Zbudowano indeks wyszukiwania książek");
+        } catch (Exception ex) {
+            log.warn("Nie udało się zbudować indeksu wyszukiwania książek: {}", ex.getMessage());
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<Book> getBooksPage(String after, Integer limit) {
+        long afterId = afterId(after);
+        int pageSize = pageSize(limit);
+
+        // Pobieramy o jeden rekord więcej, żeby wiedzieć czy istnieje kolejna strona
+        List<Book> books = bookRepository.findPageAfter(afterId, PageRequest.of(0, pageSize + 1));
+        if (books.size() <= pageSize) {
+            return new CursorPage<>(books, null);
+        }
+        List<Book> page = books.subList(0, pageSize);
+        return new CursorPage<>(page, Cursor.encode(page.get(pageSize - 1).getId()));
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<BookSummary> getBookSummariesPage(String after, Integer limit, boolean includeComments) {
+        CursorPage<Book> page = getBooksPage(after, limit);
+        return new CursorPage<>(toSummaries(page.getItems(), includeComments), page.getNextCursor());
+    }
+
+    // Liczniki komentarzy (i opcjonalnie same komentarze) pobieramy jednym zapytaniem dla całej listy
+    @Transactional(readOnly = true)
+    public List<BookSummary> toSummaries(List<Book> books, boolean includeComments) {
+        if (books.isEmpty()) {
+            return List.of();
+        }
+        List<Long> bookIds = books.stream().map(Book::getId).toList();
+
+        Map<Long, BookCommentStats> statsByBookId = commentRepository.findCommentStatsByBookIds(bookIds).stream()
+                .collect(Collectors.toMap(BookCommentStats::getBookId, Function.identity()));
+        Map<Long, List<Comment>> commentsByBookId = includeComments
+                ? commentRepository.findByBookIds(bookIds).stream()
+                        .collect(Collectors.groupingBy(comment -> comment.getBook().getId()))
+                : Map.of();
+
+        return books.stream()
+                .map(book -> {
+                    BookCommentStats stats = statsByBookId.get(book.getId());
+                    return new BookSummary(book,
+                            stats == null ? 0L : stats.getCommentCount(),
+                            stats == null ? null : stats.getAverageRating(),
+                            includeComments ? commentsByBookId.getOrDefault(book.getId(), List.of()) : null);
+                })
+                .toList();
     }
 
-    public List<Book> getAllBooks() {
-        return bookRepository.findAll();
+    @Transactional(readOnly = true)
+    public List<Book> findBooksByTitle(String title, Integer limit) {
+        List<Long> ids = findIdsByTitle(title, limit);
+        if (ids == null) {
+            return bookRepository.findByTitleContainingIgnoreCase(title, PageRequest.of(0, pageSize(limit)));
+        }
+        return findBooksByIds(ids);
+    }
+
+    // Identyfikatory z indeksu w kolejności rankingu; null, dopóki indeks się buduje
+    public List<Long> findIdsByTitle(String title, Integer limit) {
+        if (!searchIndex.isReady()) {
+            return null;
+        }
+        return searchIndex.search(title, pageSize(limit));
     }
 
-    public List<Book> findBooksByTitle(String title) {
-        return bookRepository.findByTitleContainingIgnoreCase(title);
+    // Zachowujemy kolejność podanych identyfikatorów
+    @Transactional(readOnly = true)
+    public List<Book> findBooksByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Book> booksById = bookRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+        return ids.stream()
+                .map(booksById::get)
+                .filter(Objects::nonNull)
+                .toList();
     }
 
-    public Book findBookById(int id) {
-        return bookRepository.findById(id);
+    public String bookETag(long id) {
+        return bookVersions.bookETag(id);
     }
 
+    // Przed uzupełnieniem tabeli statystyk część książek nie ma wersji - ETag listy nie objąłby ich zmian
+    public String catalogPageETag(String after, Integer limit) {
+        if (!bookStatsService.isReady()) {
+            return null;
+        }
+        return bookVersions.pageETag(afterId(after), pageSize(limit));
+    }
+
+    public String booksETag(List<Long> bookIds) {
+        if (!bookStatsService.isReady()) {
+            return null;
+        }
+        return bookVersions.booksETag(bookIds);
+    }
+
+    // Wersja i szczegóły z tej samej migawki, więc wpis w cache odpowiada swojej wersji także przy odczycie z repliki.
+    // Wpis wczytany z opóźnionej repliki ma starszą wersję i zostanie wymieniony przy pierwszym nowszym odczycie
+    @Transactional(readOnly = true)
+    public BookDetails findBookById(long id) {
+        Long version = bookVersions.findVersion(id);
+        return bookCache.get(id, version, bookId -> loadBookDetails(bookId, version));
+    }
+
+    private BookDetails loadBookDetails(Long id, Long version) {
+        Book book = bookRepository.findById(id.longValue());
+        if (book == null) {
+            return null;
+        }
+        List<CommentView> comments = commentRepository.findByBookIds(List.of(id)).stream()
+                .map(CommentView::new)
+                .toList();
+        return new BookDetails(book, comments, version);
+    }
+
+    @Transactional
     public Book addBook(Book book) {
-        return bookRepository.save(book);
+        Book savedBook = bookRepository.save(book);
+        bookStatsService.createFor(savedBook.getId());
+        AfterCommit.run(() -> searchIndex.index(savedBook));
+        return savedBook;
     }
 
+    // Wywoływane przez import po wstawieniu paczki książek z pominięciem JPA
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registerImportedBooks(List<Book> books) {
+        bookStatsService.createForAll(books.stream().map(Book::getId).toList());
+        AfterCommit.run(() -> books.forEach(searchIndex::index));
+    }
 
+    @Transactional
     public boolean deleteBook(Long id) {
         Optional<Book> bookOptional = bookRepository.findById(id);
         if (bookOptional.isPresent()) {
+            bookStatsService.deleteFor(id);
+            commentRepository.deleteByBookId(id);
             bookRepository.deleteById(id);
+            AfterCommit.run(() -> searchIndex.remove(id));
+            bookCache.invalidate(id);
             return true;
         }
         return false;
     }
 
+    @Transactional(readOnly = true)
     public boolean existsById(Long bookId) {
         return bookRepository.existsById(bookId);
     }
 
+    public boolean isKnownBook(Long bookId) {
+        return bookStatsService.isKnownBook(bookId);
+    }
+
+    @Transactional(readOnly = true)
+    public RatingDistribution getRatingDistribution(Long bookId) {
+        return new RatingDistribution(bookId, bookStatsService.getRatingHistogram(bookId));
+    }
+
+    @Transactional
     public Book updateBook(Long id, Book bookDetails) {
         Book book = bookRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Nie znaleziono książki o ID: " + id));
@@ -57,27 +264,51 @@ public class BookService {
         book.setDescription(bookDetails.getDescription());
         book.setGenre(bookDetails.getGenre());
 
-        return bookRepository.save(book);
+        Book updatedBook = bookRepository.save(book);
+        AfterCommit.run(() -> searchIndex.index(updatedBook));
+        bookStatsService.recordBookChanged(id);
+        bookCache.invalidate(id);
+        return updatedBook;
     }
 
+    public boolean isRankingReady() {
+        return bookStatsService.isRankingReady();
+    }
+
+    public List<RankedBook> getTopBooks(RankingMetric metric, int k) {
+        return bookStatsService.getTopBooks(metric, k);
+    }
+
+    @Transactional(readOnly = true)
     public List<Object[]> getBooksWithTotalRatings() {
-        return bookRepository.findTotalRatingForBooks();
+        return bookStatsService.getBooksWithTotalRatings();
     }
 
+    @Transactional(readOnly = true)
     public List<Object[]> getTop3MostCommentedBooks() {
-        Pageable pageable = PageRequest.of(0, 3); // Ograniczenie do 3 książek
-        return bookRepository.findTop3MostCommentedBooks(pageable);
+        return bookStatsService.getMostCommentedBooks(3); // Ograniczenie do 3 książek
+    }
+
+    @Transactional(readOnly = true)
+    public List<BookReadingStats> getBooksWithReadCountAndAverageRating() {
+        return bookStatsService.getBooksWithReadCountAndAverageRating();
+    }
+
+    @Transactional(readOnly = true)
+    public List<BookCommentLength> getAverageCommentLengthPerBook() {
+        return bookStatsService.getAverageCommentLengthPerBook();
     }
 
-    public List<Object[]> getBooksWithReadCountAndAverageRating() {
-        return bookRepository.findBooksWithReadCountAndAverageRating();
+    @Transactional(readOnly = true)
+    public List<BookReaderCount> getBooksWithReadersCount() {
+        return bookStatsService.getBooksWithReadersCount();
     }
 
-    public List<Object[]> getAverageCommentLengthPerBook() {
-        return bookRepository.findAverageCommentLengthPerBook();
+    private static long afterId(String after) {
+        return after == null ? 0L : Cursor.decode(after, 1)[0];
     }
 
-    public List<Object[]> getBooksWithReadersCount() {
-        return bookRepository.findBooksWithReadersCount();
+    private static int pageSize(Integer limit) {
+        return limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
     }
-}
\ No newline at end of file
+}
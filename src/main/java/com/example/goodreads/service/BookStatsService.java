@@ -0,0 +1,346 @@
+package com.example.goodreads.service;
+
+import com.example.goodreads.config.ReplicaLagMonitor;
+import com.example.goodreads.config.ReplicaReads;
+import com.example.goodreads.dto.BookCommentLength;
+import com.example.goodreads.dto.BookReaderCount;
+import com.example.goodreads.dto.BookReadingStats;
+import com.example.goodreads.dto.RankedBook;
+import com.example.goodreads.model.Book;
+import com.example.goodreads.model.BookStats;
+import com.example.goodreads.model.UsersBook;
+import com.example.goodreads.repository.BookRepository;
+import com.example.goodreads.repository.BookStatsRepository;
+import com.example.goodreads.repository.CommentRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+import java.util.stream.Collectors;
+
+// Statystyki dla panelu administratora czytane z tabeli BookStats zamiast z GROUP BY po komentarzach
+@Slf4j
+@Service
+public class BookStatsService {
+
+    private static final Duration PENDING_WRITES_TIMEOUT = Duration.ofSeconds(30);
+    private static final int RECOUNT_BATCH_SIZE = 1000;
+
+    private final BookStatsRepository bookStatsRepository;
+    private final BookRepository bookRepository;
+    private final BookRankings bookRankings;
+    private final RatingHistograms ratingHistograms;
+    private final CommentRepository commentRepository;
+    private final TransactionTemplate transactionTemplate;
+    // Dostępny tylko przy skonfigurowanych replikach
+    private final ObjectProvider<ReplicaLagMonitor> replicaLagMonitor;
+    private volatile boolean ready;
+
+    // Zapisy rozpoczęte przed uzupełnieniem tabeli i książki, których wiersza statystyk wtedy jeszcze nie było
+    private final Set<Object> pendingWrites = ConcurrentHashMap.newKeySet();
+    private final Set<Long> missedBooks = ConcurrentHashMap.newKeySet();
+
+    public BookStatsService(BookStatsRepository bookStatsRepository,
+                            BookRepository bookRepository,
+                            BookRankings bookRankings,
+                            RatingHistograms ratingHistograms,
+                            CommentRepository commentRepository,
+                            TransactionTemplate transactionTemplate,
+                            ObjectProvider<ReplicaLagMonitor> replicaLagMonitor) {
+        this.bookStatsRepository = bookStatsRepository;
+        this.bookRepository = bookRepository;
+        this.bookRankings = bookRankings;
+        this.ratingHistograms = ratingHistograms;
+        this.commentRepository = commentRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.replicaLagMonitor = replicaLagMonitor;
+    }
+
+    // Do czasu uzupełnienia tabeli statystyk odpowiadamy zapytaniami agregującymi
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializeStats() {
+        Thread.ofPlatform().daemon().name("book-stats-init").start(this::backfill);
+    }
+
+    public void backfill() {
+        try {
+            Integer inserted = transactionTemplate.execute(status -> bookStatsRepository.insertMissing());
+            int reconciled = reconcileMissedWrites();
+            Integer recounted = transactionTemplate.execute(status -> bookStatsRepository.recountRatingHistograms());
+            ready = true;
+            bookRankings.beginLoad();
+            ratingHistograms.beginLoad();
+            // Migawka musi zawierać zmiany zatwierdzone przed beginLoad - późniejsze zbierają się już w pamięci
+            long loadStarted = System.currentTimeMillis();
+            awaitReplicas(loadStarted);
+            List<BookStats> stats = ReplicaReads.caughtUpTo(loadStarted, bookStatsRepository::findAll);
+            bookRankings.load(stats);
+            ratingHistograms.load(stats);
+            log.info("Uzupełniono statystyki książek, nowych wierszy: {}, przeliczonych rozkładów ocen: {}, "
+                    + "uzgodnionych po równoległych zapisach: {}", inserted, recounted, reconciled);
+        } catch (Exception ex) {
+            log.warn("Nie udało się uzupełnić statystyk książek: {}", ex.getMessage());
+        }
+    }
+
+    private void awaitReplicas(long sinceMillis) throws InterruptedException {
+        ReplicaLagMonitor monitor = replicaLagMonitor.getIfAvailable();
+        if (monitor != null) {
+            monitor.awaitCaughtUp(sinceMillis);
+        }
+    }
+
+    // Zapis, który nie znalazł wiersza przed INSERT ... SELECT, mógł zatwierdzić się już po jego migawce.
+    // Czekamy na zapisy rozpoczęte wcześniej i przeliczamy ich książki z danych źródłowych
+    private int reconcileMissedWrites() throws InterruptedException {
+        Set<Object> started = Set.copyOf(pendingWrites);
+        long deadline = System.nanoTime() + PENDING_WRITES_TIMEOUT.toNanos();
+        while (started.stream().anyMatch(pendingWrites::contains)) {
+            if (System.nanoTime() > deadline) {
+                log.warn("Nie doczekano się zakończenia zapisów statystyk sprzed uzupełnienia tabeli");
+                break;
+            }
+            Thread.sleep(10);
+        }
+        List<Long> bookIds = List.copyOf(missedBooks);
+        missedBooks.removeAll(bookIds);
+        int reconciled = 0;
+        for (int from = 0; from < bookIds.size(); from += RECOUNT_BATCH_SIZE) {
+            List<Long> batch = bookIds.subList(from, Math.min(from + RECOUNT_BATCH_SIZE, bookIds.size()));
+            reconciled += transactionTemplate.execute(status -> bookStatsRepository.recount(batch));
+        }
+        return reconciled;
+    }
+
+    // Po uzupełnieniu tabeli każda książka ma wiersz statystyk i zmiany trafiają w niego bezpośrednio
+    private int applyTracked(Long bookId, IntSupplier update) {
+        if (ready) {
+            return update.getAsInt();
+        }
+        Object write = new Object();
+        AtomicBoolean missed = new AtomicBoolean();
+        pendingWrites.add(write);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED && missed.get()) {
+                    missedBooks.add(bookId);
+                }
+                pendingWrites.remove(write);
+            }
+        });
+        int updated = update.getAsInt();
+        missed.set(updated == 0);
+        return updated;
+    }
+
+    private int applyCommentDelta(Long bookId, long ratingDelta, long commentDelta, long lengthDelta,
+                                  long[] histogramDelta) {
+        return applyTracked(bookId, () -> bookStatsRepository.applyCommentDelta(bookId, ratingDelta, commentDelta,
+                lengthDelta, histogramDelta));
+    }
+
+    private int applyShelfDelta(Long bookId, long readDelta, long readerDelta) {
+        return applyTracked(bookId, () -> bookStatsRepository.applyShelfDelta(bookId, readDelta, readerDelta));
+    }
+
+    private int bumpVersion(Long bookId) {
+        return applyTracked(bookId, () -> bookStatsRepository.bumpVersion(bookId));
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void createFor(Long bookId) {
+        bookStatsRepository.save(new BookStats(bookId));
+        AfterCommit.run(() -> {
+            bookRankings.addBook(bookId);
+            ratingHistograms.addBook(bookId);
+        });
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void createForAll(List<Long> bookIds) {
+        bookStatsRepository.insertEmpty(bookIds);
+        AfterCommit.run(() -> bookIds.forEach(bookId -> {
+            bookRankings.addBook(bookId);
+            ratingHistograms.addBook(bookId);
+        }));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void deleteFor(Long bookId) {
+        bookStatsRepository.deleteById(bookId);
+        AfterCommit.run(() -> {
+            bookRankings.removeBook(bookId);
+            ratingHistograms.remove(bookId);
+        });
+    }
+
+    // Długość treści w punktach kodowych, jak CHAR_LENGTH przy przeliczaniu z bazy (JPQL LENGTH);
+    // dodanie, edycja i usunięcie muszą liczyć ją tak samo, żeby zmiany się znosiły
+    public static int contentLength(String content) {
+        return content.codePointCount(0, content.length());
+    }
+
+    // Aktualizacja wiersza statystyk sprawdza przy okazji, czy książka istnieje.
+    // Przed uzupełnieniem tabeli wiersza może brakować - wtedy pytamy o książkę, a statystykę policzy uzupełnianie
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean recordCommentAdded(Long bookId, int rating, int contentLength) {
+        long[] histogramDelta = RatingHistograms.delta(rating, 0);
+        if (applyCommentDelta(bookId, rating, 1, contentLength, histogramDelta) == 0) {
+            return !ready && bookRepository.existsById(bookId);
+        }
+        AfterCommit.run(() -> {
+            bookRankings.applyCommentDelta(bookId, rating, 1);
+            ratingHistograms.apply(bookId, histogramDelta);
+        });
+        return true;
+    }
+
+    // Zbiorcza zmiana dla wielu komentarzy jednej książki zapisanych w tej samej transakcji
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCommentsAdded(Long bookId, long ratingSum, long count, long contentLengthSum,
+                                    long[] histogramDelta) {
+        applyCommentDelta(bookId, ratingSum, count, contentLengthSum, histogramDelta);
+        AfterCommit.run(() -> {
+            bookRankings.applyCommentDelta(bookId, ratingSum, count);
+            ratingHistograms.apply(bookId, histogramDelta);
+        });
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCommentRemoved(Long bookId, int rating, int contentLength) {
+        long[] histogramDelta = RatingHistograms.delta(0, rating);
+        applyCommentDelta(bookId, -rating, -1, -contentLength, histogramDelta);
+        AfterCommit.run(() -> {
+            bookRankings.applyCommentDelta(bookId, -rating, -1);
+            ratingHistograms.apply(bookId, histogramDelta);
+        });
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordCommentChanged(Long bookId, int oldRating, int oldLength, int newRating, int newLength) {
+        if (oldRating != newRating || oldLength != newLength) {
+            long[] histogramDelta = RatingHistograms.delta(newRating, oldRating);
+            applyCommentDelta(bookId, newRating - oldRating, 0, newLength - oldLength, histogramDelta);
+            AfterCommit.run(() -> {
+                bookRankings.applyCommentDelta(bookId, newRating - oldRating, 0);
+                ratingHistograms.apply(bookId, histogramDelta);
+            });
+        } else {
+            bumpVersion(bookId);
+        }
+    }
+
+    // Zmiana danych samej książki - liczniki bez zmian, rośnie tylko wersja (ETag)
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordBookChanged(Long bookId) {
+        bumpVersion(bookId);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordReaderAdded(Long bookId, UsersBook.Status status) {
+        applyShelfDelta(bookId, status == UsersBook.Status.READED ? 1 : 0, 1);
+        AfterCommit.run(() -> bookRankings.applyReaderDelta(bookId, 1));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordReaderRemoved(Long bookId, UsersBook.Status status) {
+        applyShelfDelta(bookId, status == UsersBook.Status.READED ? -1 : 0, -1);
+        AfterCommit.run(() -> bookRankings.applyReaderDelta(bookId, -1));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordStatusChanged(Long bookId, UsersBook.Status oldStatus, UsersBook.Status newStatus) {
+        long readDelta = (newStatus == UsersBook.Status.READED ? 1 : 0) - (oldStatus == UsersBook.Status.READED ? 1 : 0);
+        if (readDelta != 0) {
+            applyShelfDelta(bookId, readDelta, 0);
+        }
+    }
+
+    // Po załadowaniu rankingów istnienie książki sprawdzamy w pamięci
+    public boolean isKnownBook(Long bookId) {
+        return bookRankings.isReady() ? bookRankings.contains(bookId) : bookRepository.existsById(bookId);
+    }
+
+    // Przed załadowaniem liczników rozkład liczymy z komentarzy książki
+    public long[] getRatingHistogram(Long bookId) {
+        if (ratingHistograms.isReady()) {
+            return ratingHistograms.get(bookId);
+        }
+        long[] histogram = new long[RatingHistograms.MAX_RATING];
+        for (Object[] row : commentRepository.countRatingsByBookId(bookId)) {
+            int rating = ((Number) row[0]).intValue();
+            if (rating >= 1 && rating <= RatingHistograms.MAX_RATING) {
+                histogram[rating - 1] = ((Number) row[1]).longValue();
+            }
+        }
+        return histogram;
+    }
+
+    public boolean isRankingReady() {
+        return bookRankings.isReady();
+    }
+
+    public List<RankedBook> getTopBooks(RankingMetric metric, int k) {
+        List<BookRankings.Entry> entries = bookRankings.top(metric, k);
+        Map<Long, Book> booksById = bookRepository.findAllById(entries.stream().map(BookRankings.Entry::bookId).toList())
+                .stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+        return entries.stream()
+                .map(entry -> {
+                    Book book = booksById.get(entry.bookId());
+                    return book == null ? null
+                            : new RankedBook(book.getId(), book.getTitle(), book.getAuthor(), entry.score());
+                })
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    public List<Object[]> getBooksWithTotalRatings() {
+        return ready ? bookStatsRepository.findTotalRatingForBooks() : bookRepository.findTotalRatingForBooks();
+    }
+
+    public List<Object[]> getMostCommentedBooks(int limit) {
+        PageRequest pageable = PageRequest.of(0, limit);
+        return ready
+                ? bookStatsRepository.findMostCommentedBooks(pageable)
+                : bookRepository.findTop3MostCommentedBooks(pageable);
+    }
+
+    public List<BookReadingStats> getBooksWithReadCountAndAverageRating() {
+        return ready
+                ? bookStatsRepository.findBooksWithReadCountAndAverageRating()
+                : bookRepository.findBooksWithReadCountAndAverageRating();
+    }
+
+    public List<BookCommentLength> getAverageCommentLengthPerBook() {
+        return ready
+                ? bookStatsRepository.findAverageCommentLengthPerBook()
+                : bookRepository.findAverageCommentLengthPerBook();
+    }
+
+    public List<BookReaderCount> getBooksWithReadersCount() {
+        return ready ? bookStatsRepository.findBooksWithReadersCount() : bookRepository.findBooksWithReadersCount();
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.goodreads.service;
+
+import com.example.goodreads.dto.BookVersion;
+import com.example.goodreads.dto.RatingDistribution;
+import com.example.goodreads.repository.BookStatsRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// ETagi z wersji zapisanych w book_stats.version. Wersję podbija ta sama transakcja, która zmienia książkę
+// lub jej komentarze, więc ETag jest wspólny dla wszystkich instancji i nie zmienia się po restarcie
+@Component
+public class BookVersions {
+
+    private final BookStatsRepository bookStatsRepository;
+
+    public BookVersions(BookStatsRepository bookStatsRepository) {
+        this.bookStatsRepository = bookStatsRepository;
+    }
+
+    // Brak wiersza statystyk (nieistniejąca książka albo tabela jeszcze nieuzupełniona) - brak wersji i ETagu
+    @Transactional(readOnly = true)
+    public Long findVersion(long bookId) {
+        return bookStatsRepository.findVersion(bookId).orElse(null);
+    }
+
+    @Transactional(readOnly = true)
+    public String bookETag(long bookId) {
+        Long version = findVersion(bookId);
+        return version == null ? null : bookETag(bookId, version);
+    }
+
+    // Strona katalogu zależy od swoich książek i od tego, czy istnieje następna (kursor), stąd pageSize + 1 wersji
+    @Transactional(readOnly = true)
+    public String pageETag(long afterId, int pageSize) {
+        return listETag("c", bookStatsRepository.findVersionsAfter(afterId, PageRequest.of(0, pageSize + 1)));
+    }
+
+    // Lista książek w podanej kolejności; książka bez wersji oznacza brak ETagu
+    @Transactional(readOnly = true)
+    public String booksETag(List<Long> bookIds) {
+        if (bookIds.isEmpty()) {
+            return listETag("s", List.of());
+        }
+        Map<Long, BookVersion> versions = bookStatsRepository.findVersions(bookIds).stream()
+                .collect(Collectors.toMap(BookVersion::bookId, Function.identity()));
+        if (!versions.keySet().containsAll(bookIds)) {
+            return null;
+        }
+        return listETag("s", bookIds.stream().map(versions::get).toList());
+    }
+
+    public static String bookETag(long bookId, long version) {
+        return "\"b" + bookId + "-" + version + "\"";
+    }
+
+    // Rozkład ocen pochodzi z liczników w pamięci, więc ETag budujemy wprost z treści
+    public static String ratingsETag(RatingDistribution distribution) {
+        return "\"r" + distribution.getBookId() + "-" + distribution.getCounts().values().stream()
+                .map(String::valueOf)
+                .collect(Collectors.joining(".")) + "\"";
+    }
+
+    private static String listETag(String prefix, List<BookVersion> versions) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+        for (BookVersion version : versions) {
+            digest.update((version.bookId() + ":" + version.version() + ";").getBytes(StandardCharsets.UTF_8));
+        }
+        return "\"" + prefix + "-" + HexFormat.of().formatHex(digest.digest(), 0, 16) + "\"";
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.goodreads.service;
+
+import com.example.goodreads.model.Book;
+import com.example.goodreads.model.Comment;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+// Eksport całego katalogu wiersz po wierszu: encje są odpinane od kontekstu zaraz po zapisaniu,
+// więc zużycie pamięci nie zależy od liczby książek
+@Service
+public class CatalogExportService {
+
+    private static final int FLUSH_EVERY = 500;
+
+    private final int fetchSize;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // Integer.MIN_VALUE to w sterowniku MySQL strumieniowanie wiersz po wierszu tylko dla tego zapytania,
+    // bez useCursorFetch w URL-u, który włączałby kursory po stronie serwera dla wszystkich zapytań
+    public CatalogExportService(@Value("${goodreads.export.fetch-size:" + Integer.MIN_VALUE + "}") int fetchSize,
+                                TransactionTemplate transactionTemplate, ObjectMapper objectMapper) {
+        this.fetchSize = fetchSize;
+        this.readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransaction.setReadOnly(true);
+        this.objectMapper = objectMapper;
+    }
+
+    public long exportBooks(ExportFormat format, OutputStream out) throws IOException {
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            RowWriter<Book> rowWriter = format == ExportFormat.CSV
+                    ? csv(writer, new String[]{"id", "title", "author", "description", "genre"},
+                    book -> new Object[]{book.getId(), book.getTitle(), book.getAuthor(), book.getDescription(), book.getGenre()})
+                    : ndjson(writer, (generator, book) -> {
+                        generator.writeNumberField("id", book.getId());
+                        generator.writeStringField("title", book.getTitle());
+                        generator.writeStringField("author", book.getAuthor());
+                        generator.writeStringField("description", book.getDescription());
+                        generator.writeStringField("genre", book.getGenre());
+                    });
+            return export(() -> stream("SELECT b FROM Book b ORDER BY b.id", Book.class), rowWriter, writer);
+        }
+    }
+
+    public long exportComments(ExportFormat format, OutputStream out) throws IOException {
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            // getBook().getId() czyta identyfikator z proxy bez ładowania książki
+            RowWriter<Comment> rowWriter = format == ExportFormat.CSV
+                    ? csv(writer, new String[]{"id", "bookId", "content", "rating"},
+                    comment -> new Object[]{comment.getId(), comment.getBook().getId(), comment.getContent(), comment.getRating()})
+                    : ndjson(writer, (generator, comment) -> {
+                        generator.writeNumberField("id", comment.getId());
+                        generator.writeNumberField("bookId", comment.getBook().getId());
+                        generator.writeStringField("content", comment.getContent());
+                        generator.writeNumberField("rating", comment.getRating());
+                    });
+            return export(() -> stream("SELECT c FROM Comment c ORDER BY c.id", Comment.class), rowWriter, writer);
+        }
+    }
+
+    // Kursor tylko do przodu, encje tylko do odczytu
+    private <T> Stream<T> stream(String query, Class<T> type) {
+        return entityManager.createQuery(query, type)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+
+    private <T> long export(Supplier<Stream<T>> rows, RowWriter<T> rowWriter, Writer writer) {
+        Long written = readOnlyTransaction.execute(status -> {
+            long count = 0;
+            try (Stream<T> stream = rows.get()) {
+                for (T row : (Iterable<T>) stream::iterator) {
+                    rowWriter.write(row);
+                    entityManager.detach(row);
+                    if (++count % FLUSH_EVERY == 0) {
+                        writer.flush();
+                    }
+                }
+                rowWriter.finish();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            return count;
+        });
+        return written == null ? 0 : written;
+    }
+
+    private <T> RowWriter<T> ndjson(Writer writer, FieldWriter<T> fields) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(writer);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        return new RowWriter<>() {
+            @Override
+            public void write(T row) throws IOException {
+                generator.writeStartObject();
+                fields.write(generator, row);
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            }
+
+            @Override
+            public void finish() throws IOException {
+                generator.flush();
+            }
+        };
+    }
+
+    private <T> RowWriter<T> csv(Writer writer, String[] header, Function<T, Object[]> values) throws IOException {
+        writeCsvLine(writer, header);
+        return new RowWriter<>() {
+            @Override
+            public void write(T row) throws IOException {
+                writeCsvLine(writer, values.apply(row));
+            }
+
+            @Override
+            public void finish() throws IOException {
+                writer.flush();
+            }
+        };
+    }
+
+    private static void writeCsvLine(Writer writer, Object[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(csvValue(values[i]));
+        }
+        writer.write("\r\n");
+    }
+
+    static String csvValue(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+
+    private interface RowWriter<T> {
+        void write(T row) throws IOException;
+
+        void finish() throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface FieldWriter<T> {
+        void write(JsonGenerator generator, T row) throws IOException;
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.goodreads.service;
+
+import com.example.goodreads.model.Comment;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Asynchroniczny zapis komentarzy: żądanie tylko wstawia komentarz do ograniczonej kolejki,
+// a jeden wątek zapisuje je paczkami, po jednej transakcji na paczkę
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "goodreads.comments.async.enabled", havingValue = "true")
+public class CommentIngestionQueue implements SmartLifecycle {
+
+    private static final long POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(200);
+
+    private final CommentService commentService;
+    private final BlockingQueue<PendingComment> queue;
+    private final int capacity;
+    private final int batchSize;
+    private final long offerTimeoutNanos;
+    private final Duration shutdownTimeout;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final AtomicLong commits = new AtomicLong();
+    private final AtomicLong commitNanosTotal = new AtomicLong();
+    private final AtomicLong commitNanosMax = new AtomicLong();
+    private final AtomicLong queueWaitNanosMax = new AtomicLong();
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public CommentIngestionQueue(CommentService commentService,
+                                 @Value("${goodreads.comments.async.queue-capacity:10000}") int capacity,
+                                 @Value("${goodreads.comments.async.batch-size:200}") int batchSize,
+                                 @Value("${goodreads.comments.async.offer-timeout:50ms}") Duration offerTimeout,
+                                 @Value("${goodreads.comments.async.shutdown-timeout:30s}") Duration shutdownTimeout) {
+        this.commentService = commentService;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.offerTimeoutNanos = offerTimeout.toNanos();
+        this.shutdownTimeout = shutdownTimeout;
+    }
+
+    // false oznacza pełną kolejkę (albo zamykanie aplikacji) - klient powinien ponowić żądanie później
+    public boolean submit(Long bookId, Comment comment) {
+        if (!running) {
+            rejected.increment();
+            return false;
+        }
+        try {
+            if (queue.offer(new PendingComment(bookId, comment, System.nanoTime()), offerTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                accepted.increment();
+                return true;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        rejected.increment();
+        return false;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        writer = Thread.ofPlatform().name("comment-writer").start(this::writeLoop);
+    }
+
+    // Zatrzymanie czeka, aż wątek zapisze wszystko, co zostało w kolejce
+    @Override
+    public void stop() {
+        running = false;
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.join(shutdownTimeout);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            log.warn("Nie zdążono zapisać komentarzy z kolejki przed zamknięciem: {}", queue.size());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Kolejkę zatrzymujemy po serwerze WWW, żeby po opróżnieniu nie przyszły już nowe komentarze
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    private void writeLoop() {
+        List<PendingComment> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingComment first = queue.poll(POLL_NANOS, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException ex) {
+                // Przerwanie nie kończy pracy - kolejka musi zostać opróżniona
+                log.debug("Przerwano oczekiwanie na komentarze");
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<PendingComment> batch) {
+        long oldestEnqueued = batch.get(0).enqueuedAtNanos();
+        queueWaitNanosMax.accumulateAndGet(System.nanoTime() - oldestEnqueued, Math::max);
+
+        long start = System.nanoTime();
+        try {
+            int saved = commentService.addComments(batch);
+            written.add(saved);
+            dropped.add(batch.size() - saved);
+        } catch (Exception ex) {
+            log.warn("Zapis paczki {} komentarzy nie powiódł się, zapisuję pojedynczo: {}", batch.size(), ex.getMessage());
+            writeOneByOne(batch);
+        }
+        long elapsed = System.nanoTime() - start;
+        commits.incrementAndGet();
+        commitNanosTotal.addAndGet(elapsed);
+        commitNanosMax.accumulateAndGet(elapsed, Math::max);
+    }
+
+    private void writeOneByOne(List<PendingComment> batch) {
+        for (PendingComment item : batch) {
+            // Identyfikator mógł zostać nadany w wycofanej transakcji
+            item.comment().setId(null);
+            try {
+                commentService.addComment(item.bookId(), item.comment());
+                written.increment();
+            } catch (BookNotFoundException ex) {
+                dropped.increment();
+            } catch (Exception ex) {
+                failed.increment();
+                log.warn("Nie udało się zapisać komentarza do książki {}: {}", item.bookId(), ex.getMessage());
+            }
+        }
+    }
+
+    public int depth() {
+        return queue.size();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public long accepted() {
+        return accepted.sum();
+    }
+
+    public long rejected() {
+        return rejected.sum();
+    }
+
+    public long written() {
+        return written.sum();
+    }
+
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    public long failed() {
+        return failed.sum();
+    }
+
+    public long commits() {
+        return commits.get();
+    }
+
+    public double averageCommitMillis() {
+        long count = commits.get();
+        return count == 0 ? 0 : commitNanosTotal.get() / 1_000_000.0 / count;
+    }
+
+    public double maxCommitMillis() {
+        return commitNanosMax.get() / 1_000_000.0;
+    }
+
+    public double maxQueueWaitMillis() {
+        return queueWaitNanosMax.get() / 1_000_000.0;
+    }
+}
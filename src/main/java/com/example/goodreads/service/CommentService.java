@@ -1,14 +1,25 @@
 package com.example.goodreads.service;
 
-import com.example.goodreads.model.Book;
+import com.example.goodreads.dto.CommentView;
+import com.example.goodreads.dto.CursorPage;
 import com.example.goodreads.model.Comment;
 import com.example.goodreads.repository.BookRepository;
 import com.example.goodreads.repository.CommentRepository;
+import com.example.goodreads.repository.CommentSnapshot;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class CommentService {
@@ -19,31 +30,115 @@ public class CommentService {
     @Autowired
     private BookRepository bookRepository;
 
-    public List<Comment> findCommentsByBookId(int bookId) {
-        return commentRepository.findByBookId(bookId);
+    @Autowired
+    private BookStatsService bookStatsService;
+
+    @Autowired
+    private BookCache bookCache;
+
+    @Transactional(readOnly = true)
+    public CursorPage<CommentView> getCommentsPage(Long bookId, CommentSort sort, String cursor, Integer limit) {
+        int pageSize = limit == null
+                ? BookService.DEFAULT_PAGE_SIZE
+                : Math.max(1, Math.min(limit, BookService.MAX_PAGE_SIZE));
+        // Pobieramy o jeden rekord więcej, żeby wiedzieć czy istnieje kolejna strona
+        PageRequest pageable = PageRequest.of(0, pageSize + 1);
+
+        List<Comment> comments;
+        if (sort == CommentSort.RATING) {
+            // Pierwsza strona zaczyna się powyżej najwyższej możliwej oceny
+            long[] after = cursor == null ? new long[]{RatingHistograms.MAX_RATING + 1, Long.MAX_VALUE} : Cursor.decode(cursor, 2);
+            comments = commentRepository.findPageByRatingAfter(bookId, (int) after[0], after[1], pageable);
+        } else {
+            long afterId = cursor == null ? 0L : Cursor.decode(cursor, 1)[0];
+            comments = commentRepository.findPageByIdAfter(bookId, afterId, pageable);
+        }
+
+        if (comments.isEmpty() && cursor == null && !bookStatsService.isKnownBook(bookId)) {
+            throw new BookNotFoundException("Książka o podanym ID nie została znaleziona");
+        }
+        if (comments.size() <= pageSize) {
+            return new CursorPage<>(comments.stream().map(CommentView::new).toList(), null);
+        }
+        Comment last = comments.get(pageSize - 1);
+        String nextCursor = sort == CommentSort.RATING
+                ? Cursor.encode(last.getRating(), last.getId())
+                : Cursor.encode(last.getId());
+        return new CursorPage<>(comments.subList(0, pageSize).stream().map(CommentView::new).toList(), nextCursor);
     }
 
-    public void saveComment(Comment comment) {
-        commentRepository.save(comment);
+    // Stara ocena i długość są potrzebne tylko do statystyk; sama zmiana to jedno warunkowe UPDATE
+    @Transactional
+    public void updateComment(Long bookId, Long commentId, String content, int rating) {
+        CommentSnapshot old = commentRepository.findSnapshot(bookId, commentId)
+                .orElseThrow(() -> new CommentNotFoundException("Komentarz o podanym ID nie istnieje dla tej książki"));
+        if (commentRepository.updateOnBook(bookId, commentId, content, rating) == 0) {
+            throw new CommentNotFoundException("Komentarz o podanym ID nie istnieje dla tej książki");
+        }
+        bookStatsService.recordCommentChanged(bookId, old.getRating(), BookStatsService.contentLength(old.getContent()),
+                rating, BookStatsService.contentLength(content));
+        bookCache.invalidate(bookId);
     }
 
+    // Książki nie wczytujemy - komentarz dostaje tylko referencję do klucza obcego
+    @Transactional
     public void addComment(Long bookId, Comment comment) {
-        Book book = bookRepository.findById(bookId)
-                .orElseThrow(() -> new BookNotFoundException("Book not found"));
-        comment.setBook(book);
+        if (!bookStatsService.recordCommentAdded(bookId, comment.getRating(),
+                BookStatsService.contentLength(comment.getContent()))) {
+            throw new BookNotFoundException("Book not found");
+        }
+        comment.setBook(bookRepository.getReferenceById(bookId));
         commentRepository.save(comment);
+        bookCache.invalidate(bookId);
     }
 
-    public void deleteComment(Long bookId, Long commentId) throws CommentNotFoundException {
-        if (!bookRepository.existsById(bookId)) {
-            throw new CommentNotFoundException("Książka o podanym ID nie istnieje");
+    // Zapis grupowy z kolejki: jedna transakcja i jedna aktualizacja statystyk na książkę zamiast na komentarz.
+    // Zwraca liczbę zapisanych komentarzy - komentarze do usuniętych w międzyczasie książek są pomijane
+    @Transactional
+    public int addComments(List<PendingComment> pending) {
+        Set<Long> existingBookIds = new HashSet<>(bookRepository.findExistingIds(
+                pending.stream().map(PendingComment::bookId).collect(Collectors.toSet())));
+
+        List<Comment> comments = new ArrayList<>(pending.size());
+        Map<Long, long[]> deltasByBookId = new HashMap<>();
+        for (PendingComment item : pending) {
+            if (!existingBookIds.contains(item.bookId())) {
+                continue;
+            }
+            Comment comment = item.comment();
+            comment.setBook(bookRepository.getReferenceById(item.bookId()));
+            comments.add(comment);
+            // suma ocen, liczba, suma długości, a dalej rozkład ocen 1-5
+            long[] delta = deltasByBookId.computeIfAbsent(item.bookId(), id -> new long[3 + RatingHistograms.MAX_RATING]);
+            delta[0] += comment.getRating();
+            delta[1]++;
+            delta[2] += BookStatsService.contentLength(comment.getContent());
+            if (comment.getRating() >= 1 && comment.getRating() <= RatingHistograms.MAX_RATING) {
+                delta[2 + comment.getRating()]++;
+            }
         }
-        if (!commentRepository.existsById(commentId)) {
-            throw new CommentNotFoundException("Komentarz o podanym ID nie istnieje");
+        commentRepository.saveAll(comments);
+
+        deltasByBookId.forEach((bookId, delta) -> {
+            bookStatsService.recordCommentsAdded(bookId, delta[0], delta[1], delta[2],
+                    Arrays.copyOfRange(delta, 3, delta.length));
+            bookCache.invalidate(bookId);
+        });
+        return comments.size();
+    }
+
+    @Transactional
+    public void deleteComment(Long bookId, Long commentId) throws CommentNotFoundException {
+        CommentSnapshot old = commentRepository.findSnapshot(bookId, commentId)
+                .orElseThrow(() -> new CommentNotFoundException("Komentarz o podanym ID nie istnieje dla tej książki"));
+        if (commentRepository.deleteFromBook(bookId, commentId) == 0) {
+            throw new CommentNotFoundException("Komentarz o podanym ID nie istnieje dla tej książki");
         }
-        commentRepository.deleteById(commentId);
+        bookStatsService.recordCommentRemoved(bookId, old.getRating(), BookStatsService.contentLength(old.getContent()));
+        bookCache.invalidate(bookId);
     }
 
+    @Transactional(readOnly = true)
     public Optional<Comment> findById(Long commentId) {
         return commentRepository.findById(commentId);
     }
@@ -0,0 +1,17 @@
+package com.example.goodreads.service;
+
+import java.util.Locale;
+
+// RATING: od najwyżej ocenianych, ID: od najstarszych
+public enum CommentSort {
+    RATING,
+    ID;
+
+    public static CommentSort fromParam(String value) {
+        try {
+            return valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Niepoprawne sortowanie. Dozwolone: rating, id.");
+        }
+    }
+}
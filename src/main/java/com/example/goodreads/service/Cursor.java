@@ -0,0 +1,42 @@
+package com.example.goodreads.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Nieprzezroczysty kursor stronicowania: wartości klucza zakodowane w Base64 (URL-safe)
+public final class Cursor {
+
+    private static final String SEPARATOR = ":";
+
+    private Cursor() {
+    }
+
+    public static String encode(long... keys) {
+        StringBuilder raw = new StringBuilder();
+        for (int i = 0; i < keys.length; i++) {
+            if (i > 0) {
+                raw.append(SEPARATOR);
+            }
+            raw.append(keys[i]);
+        }
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static long[] decode(String cursor, int expectedKeys) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(SEPARATOR, -1);
+            if (parts.length != expectedKeys) {
+                throw new InvalidCursorException("Niepoprawny kursor stronicowania");
+            }
+            long[] keys = new long[parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                keys[i] = Long.parseLong(parts[i]);
+            }
+            return keys;
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidCursorException("Niepoprawny kursor stronicowania");
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.goodreads.service;
+
+import com.example.goodreads.model.Comment;
+
+public record PendingComment(Long bookId, Comment comment, long enqueuedAtNanos) {
+}
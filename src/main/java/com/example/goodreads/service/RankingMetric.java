@@ -0,0 +1,17 @@
+package com.example.goodreads.service;
+
+import java.util.Locale;
+
+public enum RankingMetric {
+    COMMENTS,
+    RATING,
+    READERS;
+
+    public static RankingMetric fromParam(String value) {
+        try {
+            return valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Niepoprawna metryka. Dozwolone: comments, rating, readers.");
+        }
+    }
+}
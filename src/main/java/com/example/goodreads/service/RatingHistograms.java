@@ -0,0 +1,116 @@
+package com.example.goodreads.service;
+
+import com.example.goodreads.model.BookStats;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Rozkład ocen książek w pamięci. LongAdder rozkłada zapisy na komórki, więc równoległe recenzje
+// popularnej książki nie walczą o jeden licznik, a odczyt nie dotyka bazy. Dotyczy to tylko pamięci - w bazie
+// rozkład leży w jednym wierszu book_stats na książkę i każda zmiana blokuje ten wiersz (zob. BookStatsRepository)
+@Component
+public class RatingHistograms {
+
+    public static final int MAX_RATING = 5;
+
+    private final Map<Long, LongAdder[]> histograms = new ConcurrentHashMap<>();
+    // Książki usunięte w trakcie ładowania - migawka mogła je jeszcze zawierać
+    private final Set<Long> removedWhileLoading = ConcurrentHashMap.newKeySet();
+    private volatile boolean loading;
+    private volatile boolean ready;
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Wywoływane przed odczytem migawki; jak w BookRankings zmiany z czasu odczytu zbierają się od zera,
+    // a load dodaje do nich migawkę
+    public void beginLoad() {
+        ready = false;
+        removedWhileLoading.clear();
+        loading = true;
+        histograms.clear();
+    }
+
+    public void load(Collection<BookStats> stats) {
+        if (!loading) {
+            beginLoad();
+        }
+        for (BookStats bookStats : stats) {
+            if (removedWhileLoading.contains(bookStats.getBookId())) {
+                continue;
+            }
+            LongAdder[] counters = counters(bookStats.getBookId());
+            long[] histogram = bookStats.getRatingHistogram();
+            for (int i = 0; i < MAX_RATING; i++) {
+                counters[i].add(histogram[i]);
+            }
+        }
+        loading = false;
+        removedWhileLoading.clear();
+        ready = true;
+    }
+
+    public void addBook(long bookId) {
+        counters(bookId);
+    }
+
+    // Poza ładowaniem rozkład zakłada tylko addBook, więc spóźniona zmiana usuniętej książki jej nie wskrzesza
+    public void apply(long bookId, long[] delta) {
+        LongAdder[] counters = loading && !removedWhileLoading.contains(bookId)
+                ? counters(bookId)
+                : histograms.get(bookId);
+        if (counters == null) {
+            return;
+        }
+        for (int i = 0; i < MAX_RATING; i++) {
+            if (delta[i] != 0) {
+                counters[i].add(delta[i]);
+            }
+        }
+    }
+
+    public void remove(long bookId) {
+        if (loading) {
+            removedWhileLoading.add(bookId);
+        }
+        histograms.remove(bookId);
+    }
+
+    public long[] get(long bookId) {
+        long[] histogram = new long[MAX_RATING];
+        LongAdder[] counters = histograms.get(bookId);
+        if (counters != null) {
+            for (int i = 0; i < MAX_RATING; i++) {
+                histogram[i] = counters[i].sum();
+            }
+        }
+        return histogram;
+    }
+
+    // Zmiana rozkładu po dodaniu oceny addedRating i usunięciu removedRating (0 oznacza brak)
+    public static long[] delta(int addedRating, int removedRating) {
+        long[] delta = new long[MAX_RATING];
+        if (addedRating >= 1 && addedRating <= MAX_RATING) {
+            delta[addedRating - 1]++;
+        }
+        if (removedRating >= 1 && removedRating <= MAX_RATING) {
+            delta[removedRating - 1]--;
+        }
+        return delta;
+    }
+
+    private LongAdder[] counters(long bookId) {
+        return histograms.computeIfAbsent(bookId, id -> {
+            LongAdder[] counters = new LongAdder[MAX_RATING];
+            for (int i = 0; i < MAX_RATING; i++) {
+                counters[i] = new LongAdder();
+            }
+            return counters;
+        });
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.goodreads.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.function.Supplier;
+
+// Wersje do ETagu i dane odpowiedzi czytamy w jednej transakcji tylko do odczytu: jedno połączenie (ta sama replika)
+// i jedna migawka (REPEATABLE READ, ustawione też na pulach replik). ETag zawsze opisuje zwróconą treść,
+// także gdy replika jest opóźniona - wtedy oba są starsze
+@Component
+public class SnapshotReads {
+
+    @Transactional(readOnly = true)
+    public <T> T call(Supplier<T> reads) {
+        return reads.get();
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.goodreads.service;
+
+import com.example.goodreads.dto.CursorPage;
+import com.example.goodreads.model.Book;
+import com.example.goodreads.model.UsersBook;
+import com.example.goodreads.repository.BookRepository;
+import com.example.goodreads.repository.UsersBookRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Półka jest rzadka: zapisujemy tylko wpisy ze statusem innym niż domyślny UNREAD
+@Service
+@RequiredArgsConstructor
+public class UsersBookService {
+
+    private final UsersBookRepository usersBookRepository;
+    private final BookRepository bookRepository;
+    private final BookStatsService bookStatsService;
+    private final TransactionTemplate transactionTemplate;
+
+    public List<UsersBook> getStoredBooks(String username, UsersBook.Status status) {
+        return status != null
+                ? usersBookRepository.findByUsernameAndStatus(username, status)
+                : usersBookRepository.findByUsername(username);
+    }
+
+    // Cała półka: strona katalogu, w której książki bez zapisanego wpisu dostają domyślny status UNREAD
+    public CursorPage<UsersBook> getShelf(String username, String after, Integer limit) {
+        int pageSize = pageSize(limit);
+        List<Book> books = bookRepository.findPageAfter(afterId(after), PageRequest.of(0, pageSize + 1));
+        String nextCursor = null;
+        if (books.size() > pageSize) {
+            books = books.subList(0, pageSize);
+            nextCursor = Cursor.encode(books.get(pageSize - 1).getId());
+        }
+        if (books.isEmpty()) {
+            return new CursorPage<>(List.of(), null);
+        }
+
+        List<Long> bookIds = books.stream().map(Book::getId).toList();
+        Map<Long, UsersBook> stored = usersBookRepository.findByUsernameAndBook_IdIn(username, bookIds).stream()
+                .collect(Collectors.toMap(UsersBook::getBookId, Function.identity()));
+        List<UsersBook> entries = books.stream()
+                .map(book -> {
+                    UsersBook entry = stored.get(book.getId());
+                    return entry != null ? entry : defaultEntry(username, book);
+                })
+                .toList();
+        return new CursorPage<>(entries, nextCursor);
+    }
+
+    public CursorPage<UsersBook> getUnreadBooks(String username, String after, Integer limit) {
+        int pageSize = pageSize(limit);
+        List<Book> books = usersBookRepository.findUnreadBooks(username, afterId(after), PageRequest.of(0, pageSize + 1));
+        String nextCursor = null;
+        if (books.size() > pageSize) {
+            books = books.subList(0, pageSize);
+            nextCursor = Cursor.encode(books.get(pageSize - 1).getId());
+        }
+        List<UsersBook> entries = books.stream()
+                .map(book -> defaultEntry(username, book))
+                .toList();
+        return new CursorPage<>(entries, nextCursor);
+    }
+
+    @Transactional
+    public UsersBook changeStatus(UsersBook usersBook, UsersBook.Status newStatus) {
+        UsersBook.Status oldStatus = usersBook.getStatus();
+        Long bookId = usersBook.getBook().getId();
+
+        if (newStatus == UsersBook.Status.UNREAD) {
+            usersBookRepository.delete(usersBook);
+            bookStatsService.recordReaderRemoved(bookId, oldStatus);
+            return defaultEntry(usersBook.getUsername(), usersBook.getBook());
+        }
+
+        usersBook.setStatus(newStatus);
+        UsersBook saved = usersBookRepository.save(usersBook);
+        bookStatsService.recordStatusChanged(bookId, oldStatus, newStatus);
+        return saved;
+    }
+
+    // Dwa równoległe pierwsze zapisy tej samej książki trafiają na uk_users_book_username_book.
+    // Przegrany ponawia w nowej transakcji - widzi już wpis zwycięzcy i tylko zmienia jego status
+    public UsersBook changeStatusForBook(String username, Long bookId, UsersBook.Status newStatus) {
+        try {
+            return transactionTemplate.execute(status -> applyStatusForBook(username, bookId, newStatus));
+        } catch (DataIntegrityViolationException ex) {
+            return transactionTemplate.execute(status -> applyStatusForBook(username, bookId, newStatus));
+        }
+    }
+
+    private UsersBook applyStatusForBook(String username, Long bookId, UsersBook.Status newStatus) {
+        Optional<UsersBook> existing = usersBookRepository.findByUsernameAndBook_Id(username, bookId);
+        if (existing.isPresent()) {
+            return changeStatus(existing.get(), newStatus);
+        }
+
+        Book book = bookRepository.findById(bookId)
+                .orElseThrow(() -> new BookNotFoundException("Nie znaleziono książki o ID: " + bookId));
+        if (newStatus == UsersBook.Status.UNREAD) {
+            return defaultEntry(username, book);
+        }
+
+        UsersBook usersBook = new UsersBook();
+        usersBook.setUsername(username);
+        usersBook.setBook(book);
+        usersBook.setStatus(newStatus);
+        UsersBook saved = usersBookRepository.save(usersBook);
+        bookStatsService.recordReaderAdded(bookId, newStatus);
+        return saved;
+    }
+
+    private static long afterId(String after) {
+        return after == null ? 0L : Cursor.decode(after, 1)[0];
+    }
+
+    private static int pageSize(Integer limit) {
+        return limit == null
+                ? BookService.DEFAULT_PAGE_SIZE
+                : Math.max(1, Math.min(limit, BookService.MAX_PAGE_SIZE));
+    }
+
+    private UsersBook defaultEntry(String username, Book book) {
+        UsersBook usersBook = new UsersBook();
+        usersBook.setUsername(username);
+        usersBook.setBook(book);
+        usersBook.setStatus(UsersBook.Status.UNREAD);
+        return usersBook;
+    }
+}
@@ -0,0 +1,51 @@
+package db.migration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+// Stary model zapisywał wpis UNREAD dla każdej pary użytkownik-książka, nowy przechowuje tylko inne statusy.
+// Usuwamy je jednorazowo, przed deduplikacją w V4, zakresami id - każdy zakres w osobnej transakcji,
+// żeby nie trzymać blokad na całej users_book w jednej ogromnej transakcji
+@Slf4j
+public class V3_1__PurgeDefaultShelfEntries extends BaseJavaMigration {
+
+    private static final long BATCH_SIZE = 10_000;
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return false;
+    }
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection connection = context.getConnection();
+        long minId;
+        long maxId;
+        try (Statement statement = connection.createStatement();
+             ResultSet range = statement.executeQuery("select coalesce(min(id), 0), coalesce(max(id), 0) from users_book")) {
+            range.next();
+            minId = range.getLong(1);
+            maxId = range.getLong(2);
+        }
+
+        long purged = 0;
+        try (PreparedStatement delete = connection.prepareStatement(
+                "delete from users_book where id >= ? and id < ? and status = 'UNREAD'")) {
+            for (long from = minId; from <= maxId; from += BATCH_SIZE) {
+                delete.setLong(1, from);
+                delete.setLong(2, from + BATCH_SIZE);
+                purged += delete.executeUpdate();
+                if (!connection.getAutoCommit()) {
+                    connection.commit();
+                }
+            }
+        }
+        log.info("Usunięto wpisy półek z domyślnym statusem UNREAD: {}", purged);
+    }
+}
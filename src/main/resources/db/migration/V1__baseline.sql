@@ -0,0 +1,31 @@
+-- Schemat sprzed migracji Flyway; istniejące bazy dostają tę wersję jako baseline i jej nie wykonują
+create table book (
+    id bigint not null auto_increment,
+    genre varchar(50) not null,
+    author varchar(100) not null,
+    title varchar(100) not null,
+    description varchar(500) not null,
+    primary key (id)
+);
+
+create table comment (
+    rating integer not null,
+    book_id bigint,
+    id bigint not null auto_increment,
+    content varchar(50) not null,
+    primary key (id)
+);
+
+create table users_book (
+    book_id bigint not null,
+    id bigint not null auto_increment,
+    username varchar(255) not null,
+    status enum ('READED','UNREAD','WANT_READ'),
+    primary key (id)
+);
+
+alter table comment
+    add constraint fk_comment_book foreign key (book_id) references book (id);
+
+alter table users_book
+    add constraint fk_users_book_book foreign key (book_id) references book (id);
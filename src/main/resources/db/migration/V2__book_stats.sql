@@ -0,0 +1,23 @@
+-- Statystyki książek utrzymywane przyrostowo; wiersze dla istniejących książek dopisuje backfill przy starcie
+create table book_stats (
+    book_id bigint not null,
+    comment_count bigint not null,
+    comment_length_sum bigint not null,
+    rating1 bigint not null,
+    rating2 bigint not null,
+    rating3 bigint not null,
+    rating4 bigint not null,
+    rating5 bigint not null,
+    rating_sum bigint not null,
+    read_count bigint not null,
+    reader_count bigint not null,
+    primary key (book_id)
+);
+
+create index idx_book_stats_rating_sum on book_stats (rating_sum);
+
+create index idx_book_stats_comment_count on book_stats (comment_count);
+
+create index idx_book_stats_read_count on book_stats (read_count);
+
+create index idx_book_stats_reader_count on book_stats (reader_count);
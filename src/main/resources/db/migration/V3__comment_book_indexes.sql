@@ -0,0 +1,4 @@
+-- Stronicowanie komentarzy książki kursorem (book_id, id) i filtrem po ocenie
+create index idx_comment_book_rating_id on comment (book_id, rating, id);
+
+create index idx_comment_book_id on comment (book_id, id);
@@ -0,0 +1,13 @@
+-- Stary /init dopisywał wpisy przy każdym wywołaniu, więc para (username, book_id) bywa zdublowana.
+-- Zostawiamy najnowszy wpis ze statusem innym niż UNREAD, a gdy takiego nie ma - najnowszy wpis.
+delete from users_book
+where id not in (
+    select keep_id from (
+        select coalesce(max(case when status <> 'UNREAD' then id end), max(id)) as keep_id
+        from users_book
+        group by username, book_id
+    ) as kept
+);
+
+alter table users_book
+    add constraint uk_users_book_username_book unique (username, book_id);
@@ -0,0 +1,2 @@
+-- Wersja treści książki (dane książki i jej komentarze) - z niej powstają ETagi wspólne dla wszystkich instancji
+alter table book_stats add column version bigint not null default 0;
@@ -0,0 +1,75 @@
+package com.example.goodreads;
+
+import org.flywaydb.core.Flyway;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Migracje Flyway na H2 w trybie MySQL; testy aplikacji zakładają schemat przez Hibernate
+class DatabaseMigrationTests {
+
+	private JdbcDataSource dataSource;
+
+	private JdbcTemplate jdbc;
+
+	@BeforeEach
+	void setUp() {
+		dataSource = new JdbcDataSource();
+		dataSource.setURL("jdbc:h2:mem:migration-" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+		dataSource.setUser("sa");
+		jdbc = new JdbcTemplate(dataSource);
+	}
+
+	@Test
+	void purgesDefaultShelfEntriesAndDeduplicatesBeforeAddingUniqueKey() {
+		migrateTo("1");
+		jdbc.update("insert into book (id, title, author, description, genre) values (1, 'Lalka', 'Prus', '', 'Powieść')");
+		jdbc.update("insert into book (id, title, author, description, genre) values (2, 'Chłopi', 'Reymont', '', 'Powieść')");
+		// Skutek wielokrotnego /init: ten sam wpis kilka razy, status zmieniany na różnych kopiach
+		shelfEntry(10, "jan", 1, "UNREAD");
+		shelfEntry(11, "jan", 1, "READED");
+		shelfEntry(12, "jan", 1, "UNREAD");
+		shelfEntry(13, "jan", 2, "WANT_READ");
+		shelfEntry(14, "jan", 2, "READED");
+		shelfEntry(15, "ola", 1, "WANT_READ");
+		// Poza pierwszą paczką usuwania
+		shelfEntry(25_000, "ola", 2, "UNREAD");
+
+		migrate();
+
+		assertThat(jdbc.queryForList("select id from users_book order by id", Long.class))
+				.containsExactly(11L, 14L, 15L);
+		assertThatThrownBy(() -> shelfEntry(16, "jan", 1, "WANT_READ"))
+				.isInstanceOf(DataIntegrityViolationException.class);
+	}
+
+	@Test
+	void createsStatsTableAndCommentIndexes() {
+		migrate();
+
+		assertThat(jdbc.queryForList("select column_name from information_schema.columns where table_name = 'BOOK_STATS'",
+				String.class)).contains("RATING1", "RATING5", "RATING_SUM", "COMMENT_LENGTH_SUM", "READER_COUNT");
+		assertThat(jdbc.queryForList("select index_name from information_schema.indexes where table_name = 'COMMENT'",
+				String.class)).contains("IDX_COMMENT_BOOK_RATING_ID", "IDX_COMMENT_BOOK_ID");
+	}
+
+	private void shelfEntry(long id, String username, long bookId, String status) {
+		jdbc.update("insert into users_book (id, username, book_id, status) values (?, ?, ?, ?)",
+				id, username, bookId, status);
+	}
+
+	private void migrateTo(String version) {
+		Flyway.configure().dataSource(dataSource).target(version).load().migrate();
+	}
+
+	private void migrate() {
+		Flyway.configure().dataSource(dataSource).load().migrate();
+	}
+}
@@ -3,7 +3,8 @@ package com.example.goodreads;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+// Bez bazy MySQL - migracje Flyway sprawdzają DatabaseMigrationTests i MigratedSchemaTests
+@SpringBootTest(properties = "spring.flyway.enabled=false")
 class GoodreadsApplicationTests {
 
 	@Test
@@ -0,0 +1,19 @@
+package com.example.goodreads;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+// Schemat z migracji Flyway musi zgadzać się z encjami (ddl-auto=validate przerywa start przy rozbieżności)
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:goodreads-migrated;MODE=MySQL;DB_CLOSE_DELAY=-1",
+		"spring.flyway.enabled=true",
+		"spring.jpa.hibernate.ddl-auto=validate"
+})
+@ActiveProfiles("test")
+class MigratedSchemaTests {
+
+	@Test
+	void entitiesMatchMigratedSchema() {
+	}
+}
@@ -0,0 +1,47 @@
+package com.example.goodreads;
+
+import com.example.goodreads.model.Book;
+import com.example.goodreads.repository.BookRepository;
+import com.example.goodreads.repository.BookStatsRepository;
+import com.example.goodreads.repository.CommentRepository;
+import com.example.goodreads.repository.UsersBookRepository;
+import org.springframework.stereotype.Component;
+
+// Wspólne dane testowe; baza H2 jest współdzielona przez konteksty, więc każdy test zaczyna od clear()
+@Component
+public class TestData {
+
+	private final UsersBookRepository usersBookRepository;
+	private final CommentRepository commentRepository;
+	private final BookStatsRepository bookStatsRepository;
+	private final BookRepository bookRepository;
+
+	public TestData(UsersBookRepository usersBookRepository, CommentRepository commentRepository,
+					BookStatsRepository bookStatsRepository, BookRepository bookRepository) {
+		this.usersBookRepository = usersBookRepository;
+		this.commentRepository = commentRepository;
+		this.bookStatsRepository = bookStatsRepository;
+		this.bookRepository = bookRepository;
+	}
+
+	// Kolejność wynika z kluczy obcych
+	public void clear() {
+		usersBookRepository.deleteAllInBatch();
+		commentRepository.deleteAllInBatch();
+		bookStatsRepository.deleteAllInBatch();
+		bookRepository.deleteAllInBatch();
+	}
+
+	public static Book book(String title) {
+		return book(title, "Autor");
+	}
+
+	public static Book book(String title, String author) {
+		Book book = new Book();
+		book.setTitle(title);
+		book.setAuthor(author);
+		book.setDescription("Opis");
+		book.setGenre("Powieść");
+		return book;
+	}
+}
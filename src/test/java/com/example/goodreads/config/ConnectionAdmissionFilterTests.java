@@ -0,0 +1,67 @@
+package com.example.goodreads.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConnectionAdmissionFilterTests {
+
+	private final ConnectionAdmissionFilter filter =
+			new ConnectionAdmissionFilter(1, Duration.ofMillis(20), new ObjectMapper());
+
+	@Test
+	void rejectsRequestsBeyondPoolSize() throws Exception {
+		MockHttpServletResponse nestedResponse = new MockHttpServletResponse();
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		// Drugie żądanie przychodzi, gdy pierwsze wciąż trzyma jedyne pozwolenie
+		filter.doFilter(new MockHttpServletRequest("GET", "/api/books/1"), response, (req, res) -> {
+			assertThat(filter.inFlight()).isEqualTo(1);
+			filter.doFilter(new MockHttpServletRequest("GET", "/api/books/2"), nestedResponse, new MockFilterChain());
+		});
+
+		assertThat(response.getStatus()).isEqualTo(200);
+		assertThat(nestedResponse.getStatus()).isEqualTo(503);
+		assertThat(nestedResponse.getHeader("Retry-After")).isEqualTo("1");
+		assertThat(filter.inFlight()).isZero();
+	}
+
+	@Test
+	void holdsThePermitUntilAsyncProcessingCompletes() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/admin/export");
+		request.setAsyncSupported(true);
+
+		filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> req.startAsync());
+
+		assertThat(filter.inFlight()).isEqualTo(1);
+		((MockAsyncContext) request.getAsyncContext()).complete();
+		assertThat(filter.inFlight()).isZero();
+	}
+
+	@Test
+	void ignoresNonApiRequests() throws Exception {
+		MockHttpServletResponse nestedResponse = new MockHttpServletResponse();
+
+		filter.doFilter(new MockHttpServletRequest("GET", "/api/books/1"), new MockHttpServletResponse(), (req, res) ->
+				filter.doFilter(new MockHttpServletRequest("GET", "/actuator/health"), nestedResponse, new MockFilterChain()));
+
+		assertThat(nestedResponse.getStatus()).isEqualTo(200);
+	}
+
+	@Test
+	void letsReactiveStreamsThroughWithoutTakingAPermit() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/reactive/books");
+		request.setAsyncSupported(true);
+
+		filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> req.startAsync());
+
+		assertThat(filter.inFlight()).isZero();
+	}
+}
@@ -0,0 +1,58 @@
+package com.example.goodreads.config;
+
+import org.junit.jupiter.api.extension.AfterTestExecutionCallback;
+import org.junit.jupiter.api.extension.BeforeTestExecutionCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+
+/**
+ * Liczy zapytania SQL wykonane w treści testu (bez @BeforeEach), łącznie z żądaniami MockMvc.
+ * Adnotacja {@link QueryBudget} na metodzie testowej zamienia się w asercję:
+ * <pre>
+ * &#64;RegisterExtension
+ * QueryBudgetExtension queries = new QueryBudgetExtension();
+ *
+ * &#64;Test
+ * &#64;QueryBudget(2)
+ * void getBook() throws Exception { mockMvc.perform(get("/api/books/1")...); }
+ * </pre>
+ * Budżety endpointów (@QueryBudget na kontrolerach) są sprawdzane niezależnie - w profilu test w trybie fail.
+ */
+public class QueryBudgetExtension implements BeforeTestExecutionCallback, AfterTestExecutionCallback {
+
+	private RequestQueryStats stats;
+
+	@Override
+	public void beforeTestExecution(ExtensionContext context) {
+		stats = RequestQueryStats.start();
+	}
+
+	@Override
+	public void afterTestExecution(ExtensionContext context) {
+		stats.finish();
+		QueryBudget budget = AnnotatedElementUtils.findMergedAnnotation(context.getRequiredTestMethod(), QueryBudget.class);
+		if (budget == null || context.getExecutionException().isPresent()) {
+			return;
+		}
+		if (stats.statements() > budget.value()) {
+			throw new AssertionError("Test wykonał " + stats.statements() + " zapytań SQL przy budżecie " + budget.value()
+					+ "; najczęstsze (" + stats.mostRepeatedCount() + "x): " + stats.mostRepeatedStatement());
+		}
+		if (budget.maxRepeats() != QueryBudget.DEFAULT_REPEATS && stats.mostRepeatedCount() > budget.maxRepeats()) {
+			throw new AssertionError("To samo zapytanie wykonano " + stats.mostRepeatedCount() + " razy (dozwolone "
+					+ budget.maxRepeats() + "): " + stats.mostRepeatedStatement());
+		}
+	}
+
+	public int statements() {
+		return stats.statements();
+	}
+
+	public int entityLoads() {
+		return stats.entityLoads();
+	}
+
+	public int mostRepeatedCount() {
+		return stats.mostRepeatedCount();
+	}
+}
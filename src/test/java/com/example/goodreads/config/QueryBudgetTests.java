@@ -0,0 +1,170 @@
+package com.example.goodreads.config;
+
+import com.example.goodreads.TestData;
+import com.example.goodreads.model.Book;
+import com.example.goodreads.model.Comment;
+import com.example.goodreads.model.UsersBook;
+import com.example.goodreads.repository.CommentRepository;
+import com.example.goodreads.repository.UsersBookRepository;
+import com.example.goodreads.service.BookService;
+import com.example.goodreads.service.CommentService;
+import com.example.goodreads.service.UsersBookService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.method.HandlerMethod;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.example.goodreads.TestData.book;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class QueryBudgetTests {
+
+	@RegisterExtension
+	QueryBudgetExtension queries = new QueryBudgetExtension();
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private CommentService commentService;
+
+	@Autowired
+	private UsersBookService usersBookService;
+
+	@Autowired
+	private CommentRepository commentRepository;
+
+	@Autowired
+	private UsersBookRepository usersBookRepository;
+
+	@Autowired
+	private TestData testData;
+
+	private final List<Long> bookIds = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		testData.clear();
+
+		bookIds.clear();
+		for (int i = 0; i < 10; i++) {
+			Book book = book("Książka " + i);
+			Long bookId = bookService.addBook(book).getId();
+			bookIds.add(bookId);
+			for (int j = 1; j <= 3; j++) {
+				Comment comment = new Comment();
+				comment.setContent("Komentarz " + j);
+				comment.setRating(j);
+				commentService.addComment(bookId, comment);
+			}
+			usersBookService.changeStatusForBook("anna", bookId, UsersBook.Status.READED);
+		}
+	}
+
+	@Test
+	@QueryBudget(3)
+	void shelfPageLoadsEntriesAndCommentsInOneBatch() throws Exception {
+		mockMvc.perform(get("/api/users-books")
+						.with(jwt().jwt(token -> token.subject("anna"))
+								.authorities(new SimpleGrantedAuthority("ROLE_client_user"))))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.items.length()").value(10))
+				.andExpect(jsonPath("$.items[0].status").value("READED"))
+				.andExpect(jsonPath("$.items[0].book.comments.length()").value(3));
+	}
+
+	@Test
+	@QueryBudget(maxRepeats = 1)
+	void deletingBookDoesNotDeleteCommentsOneByOne() throws Exception {
+		usersBookRepository.deleteAllInBatch();
+		mockMvc.perform(delete("/api/books/" + bookIds.get(0))
+						.with(jwt().authorities(new SimpleGrantedAuthority("ROLE_client_admin"))))
+				.andExpect(status().isOk());
+
+		assertThat(commentRepository.count()).isEqualTo(27);
+	}
+
+	@Test
+	@QueryBudget(1)
+	void adminStatisticsReturnProjectionsWithoutLoadingComments() throws Exception {
+		mockMvc.perform(get("/api/books/average-readed")
+						.with(jwt().authorities(new SimpleGrantedAuthority("ROLE_client_admin"))))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(10))
+				.andExpect(jsonPath("$[0].title").exists())
+				.andExpect(jsonPath("$[0].readCount").value(1))
+				.andExpect(jsonPath("$[0].averageRating").value(2.0))
+				.andExpect(jsonPath("$[0].comments").doesNotExist());
+	}
+
+	@Test
+	void failModeStopsAtFirstRepeatedStatement() throws Exception {
+		QueryBudgetInterceptor interceptor = new QueryBudgetInterceptor("fail", 2);
+		RequestQueryStats stats = RequestQueryStats.start();
+		try {
+			interceptor.preHandle(new MockHttpServletRequest(), new MockHttpServletResponse(), handler("unannotated"));
+			RequestQueryStats.statementPrepared("select b.* from book b where b.id=?");
+			RequestQueryStats.statementPrepared("select b.* from book b where b.id=?");
+
+			assertThatThrownBy(() -> RequestQueryStats.statementPrepared("select b.* from book b where b.id=?"))
+					.isInstanceOf(QueryBudgetExceededException.class)
+					.hasMessageContaining("N+1");
+		} finally {
+			stats.finish();
+		}
+	}
+
+	@Test
+	void warnModeRecordsViolationWithoutFailing() throws Exception {
+		QueryBudgetInterceptor interceptor = new QueryBudgetInterceptor("warn", 5);
+		RequestQueryStats stats = RequestQueryStats.start();
+		try {
+			interceptor.preHandle(new MockHttpServletRequest(), new MockHttpServletResponse(), handler("budgeted"));
+			RequestQueryStats.statementPrepared("select 1");
+			RequestQueryStats.statementPrepared("select 2");
+			RequestQueryStats.statementPrepared("select 3");
+		} finally {
+			stats.finish();
+		}
+
+		assertThat(stats.statements()).isEqualTo(3);
+		assertThat(stats.violation()).contains("budżecie 2");
+	}
+
+	private static HandlerMethod handler(String name) throws NoSuchMethodException {
+		return new HandlerMethod(new StubController(), StubController.class.getMethod(name));
+	}
+
+	static class StubController {
+
+		public void unannotated() {
+		}
+
+		@QueryBudget(2)
+		public void budgeted() {
+		}
+	}
+}
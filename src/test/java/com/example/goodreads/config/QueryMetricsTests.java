@@ -0,0 +1,118 @@
+package com.example.goodreads.config;
+
+import com.example.goodreads.TestData;
+import com.example.goodreads.model.Book;
+import com.example.goodreads.model.Comment;
+import com.example.goodreads.service.BookService;
+import com.example.goodreads.service.CommentService;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static com.example.goodreads.TestData.book;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+@ActiveProfiles("test")
+class QueryMetricsTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private CommentService commentService;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private TestData testData;
+
+	private Book book;
+
+	@BeforeEach
+	void setUp() {
+		testData.clear();
+
+		book = book("Lalka", "Bolesław Prus");
+		book = bookService.addBook(book);
+		for (int i = 1; i <= 3; i++) {
+			Comment comment = new Comment();
+			comment.setContent("Komentarz " + i);
+			comment.setRating(i);
+			commentService.addComment(book.getId(), comment);
+		}
+	}
+
+	@Test
+	void recordsStatementsPerRoute() throws Exception {
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		double before = statementsSummary().totalAmount();
+		statistics.clear();
+
+		mockMvc.perform(get("/api/books/" + book.getId()).with(jwt().authorities(new SimpleGrantedAuthority("ROLE_client_user"))))
+				.andExpect(status().isOk());
+
+		assertThat(statistics.getPrepareStatementCount()).isPositive();
+		assertThat(statementsSummary().totalAmount() - before).isEqualTo(statistics.getPrepareStatementCount());
+	}
+
+	@Test
+	void exposesPrometheusScrapeWithoutToken() throws Exception {
+		mockMvc.perform(get("/api/books/" + book.getId()).with(jwt().authorities(new SimpleGrantedAuthority("ROLE_client_user"))))
+				.andExpect(status().isOk());
+
+		String scrape = mockMvc.perform(get("/actuator/prometheus"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+
+		assertThat(scrape)
+				.contains("http_server_requests_seconds_bucket{")
+				.contains("status=\"200\",uri=\"/api/books/{id}\"")
+				.contains("goodreads_request_sql_statements_count{")
+				.contains("uri=\"/api/books/{id}\"")
+				.contains("goodreads_request_loaded_entities{")
+				.contains("quantile=\"0.99\"")
+				.contains("hikaricp_connections_acquire_seconds")
+				.contains("hibernate_statements")
+				.contains("goodreads_book_cache_requests_total{");
+	}
+
+	@Test
+	void otherActuatorEndpointsRequireAdmin() throws Exception {
+		mockMvc.perform(get("/actuator/metrics"))
+				.andExpect(status().isUnauthorized());
+		mockMvc.perform(get("/actuator/metrics").with(jwt().authorities(new SimpleGrantedAuthority("ROLE_client_user"))))
+				.andExpect(status().isForbidden());
+		mockMvc.perform(get("/actuator/metrics").with(jwt().authorities(new SimpleGrantedAuthority("ROLE_client_admin"))))
+				.andExpect(status().isOk());
+	}
+
+	private DistributionSummary statementsSummary() {
+		return DistributionSummary.builder("goodreads.request.sql.statements")
+				.tags("method", "GET", "uri", "/api/books/{id}")
+				.register(meterRegistry);
+	}
+}
@@ -0,0 +1,191 @@
+package com.example.goodreads.config;
+
+import com.example.goodreads.TestData;
+import com.example.goodreads.model.Book;
+import com.example.goodreads.service.BookService;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static com.example.goodreads.TestData.book;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Dwie osobne bazy H2 udają primary i replikę; "replikacja" to zrzut primary (SCRIPT) wczytany do repliki
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:goodreads-primary;DB_CLOSE_DELAY=-1",
+		"goodreads.datasource.replica.urls=jdbc:h2:mem:goodreads-replica;DB_CLOSE_DELAY=-1",
+		"goodreads.datasource.replica.lag-check-interval=1h",
+		"goodreads.datasource.replica.max-lag=500ms",
+		"goodreads.datasource.read-your-writes-window=5s"
+})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ReadReplicaRoutingTests {
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private HikariDataSource primaryDataSource;
+
+	@Autowired
+	private ReadReplicas readReplicas;
+
+	@Autowired
+	private ReplicaLagMonitor replicaLagMonitor;
+
+	@Autowired
+	private TestData testData;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	private JdbcTemplate primary;
+	private Long bookId;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		primary = new JdbcTemplate(primaryDataSource);
+		testData.clear();
+
+		Book book = book("Lalka", "Bolesław Prus");
+		bookId = bookService.addBook(book).getId();
+
+		replicaLagMonitor.check();
+		replicate();
+		replicaLagMonitor.check();
+		assertThat(replicaLagMonitor.healthyReplicas()).containsExactly("replica-1");
+	}
+
+	@AfterEach
+	void tearDown() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void readOnlyTransactionsReadFromReplica() {
+		primary.update("UPDATE book SET title = 'Lalka (wydanie II)' WHERE id = ?", bookId);
+
+		assertThat(titleSeenBy("ola")).isEqualTo("Lalka");
+	}
+
+	@Test
+	void writerReadsOwnWritesFromPrimary() {
+		signIn("anna");
+		Book changes = book("Lalka (wydanie II)", "Bolesław Prus");
+		bookService.updateBook(bookId, changes);
+
+		assertThat(primary.queryForObject("SELECT title FROM book WHERE id = ?", String.class, bookId))
+				.isEqualTo("Lalka (wydanie II)");
+		assertThat(titleSeenBy("anna")).isEqualTo("Lalka (wydanie II)");
+		assertThat(titleSeenBy("ola")).isEqualTo("Lalka");
+	}
+
+	@Test
+	void laggingReplicaFallsBackToPrimary() throws Exception {
+		primary.update("UPDATE book SET title = 'Lalka (wydanie II)' WHERE id = ?", bookId);
+		Thread.sleep(600);
+
+		replicaLagMonitor.check();
+
+		assertThat(replicaLagMonitor.healthyReplicas()).isEmpty();
+		assertThat(replicaLagMonitor.lagMillis("replica-1")).isGreaterThan(500);
+		assertThat(titleSeenBy("ola")).isEqualTo("Lalka (wydanie II)");
+	}
+
+	@Test
+	void replicaResponsesCarryTheETagOfTheReplicaSnapshot() throws Exception {
+		String listingETag = bookService.catalogPageETag(null, null);
+		String searchETag = bookService.booksETag(bookService.findIdsByTitle("Lalka", null));
+		signIn("anna");
+		bookService.updateBook(bookId, book("Lalka (wydanie II)", "Bolesław Prus"));
+		SecurityContextHolder.clearContext();
+
+		// Replika wciąż ma stary tytuł i starą wersję - stara treść idzie ze starym ETagiem, nowy nie pasuje
+		mockMvc.perform(get("/api/books/").with(client("ola")))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.ETAG, listingETag))
+				.andExpect(jsonPath("$.data.items[0].title").value("Lalka"));
+		mockMvc.perform(get("/api/books/search").param("title", "Lalka").with(client("ola")))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.ETAG, searchETag))
+				.andExpect(jsonPath("$.data[0].title").value("Lalka"));
+		mockMvc.perform(get("/api/books/" + bookId).with(client("ola")))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.ETAG, "\"b" + bookId + "-0\""))
+				.andExpect(jsonPath("$.data.title").value("Lalka"));
+
+		mockMvc.perform(get("/api/books/" + bookId).with(client("anna")))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.ETAG, "\"b" + bookId + "-1\""))
+				.andExpect(jsonPath("$.data.title").value("Lalka (wydanie II)"));
+		mockMvc.perform(get("/api/books/").with(client("anna")))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.data.items[0].title").value("Lalka (wydanie II)"))
+				.andExpect(result -> assertThat(result.getResponse().getHeader(HttpHeaders.ETAG)).isNotEqualTo(listingETag));
+	}
+
+	@Test
+	void catchUpReadsUseOnlyReplicasThatSawTheGivenMoment() throws Exception {
+		Thread.sleep(2);
+		long since = System.currentTimeMillis();
+		primary.update("UPDATE book SET title = 'Lalka (wydanie II)' WHERE id = ?", bookId);
+
+		assertThat(ReplicaReads.caughtUpTo(since, () -> titleSeenBy("ola"))).isEqualTo("Lalka (wydanie II)");
+
+		Thread.sleep(2);
+		replicaLagMonitor.check();
+		replicate();
+		replicaLagMonitor.check();
+		primary.update("UPDATE book SET title = 'Lalka (wydanie III)' WHERE id = ?", bookId);
+
+		assertThat(replicaLagMonitor.replicasCaughtUpTo(since)).containsExactly("replica-1");
+		assertThat(ReplicaReads.caughtUpTo(since, () -> titleSeenBy("ola"))).isEqualTo("Lalka (wydanie II)");
+	}
+
+	private String titleSeenBy(String username) {
+		signIn(username);
+		return bookService.getBooksPage(null, 10).getItems().get(0).getTitle();
+	}
+
+	private static RequestPostProcessor client(String username) {
+		return jwt().jwt(token -> token.subject(username)).authorities(new SimpleGrantedAuthority("ROLE_client_user"));
+	}
+
+	private static void signIn(String username) {
+		SecurityContextHolder.getContext().setAuthentication(
+				new TestingAuthenticationToken(username, null, "ROLE_client_user"));
+	}
+
+	private void replicate() throws Exception {
+		Path dump = Files.createTempFile("goodreads-primary", ".sql");
+		try {
+			primary.execute("SCRIPT TO '" + dump + "'");
+			JdbcTemplate replica = new JdbcTemplate(readReplicas.get("replica-1"));
+			replica.execute("DROP ALL OBJECTS");
+			replica.execute("RUNSCRIPT FROM '" + dump + "'");
+		} finally {
+			Files.deleteIfExists(dump);
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package com.example.goodreads.controller;
+
+import com.example.goodreads.TestData;
+import com.example.goodreads.model.Book;
+import com.example.goodreads.model.Comment;
+import com.example.goodreads.service.BookService;
+import com.example.goodreads.service.CommentService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.example.goodreads.TestData.book;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class BookCommentsPaginationTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private CommentService commentService;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private TestData testData;
+
+	private Book book;
+
+	@BeforeEach
+	void setUp() {
+		testData.clear();
+
+		book = book("Lalka", "Bolesław Prus");
+		book = bookService.addBook(book);
+
+		for (int rating : new int[]{3, 5, 1, 5, 3, 4, 2}) {
+			Comment comment = new Comment();
+			comment.setContent("Ocena " + rating);
+			comment.setRating(rating);
+			commentService.addComment(book.getId(), comment);
+		}
+	}
+
+	@Test
+	void walksAllPagesSortedByRatingWithOnePageQueryPerPage() throws Exception {
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		List<Integer> ratings = new ArrayList<>();
+		String cursor = null;
+		int pages = 0;
+		do {
+			String url = "/api/books/" + book.getId() + "/comments?sort=rating&limit=3"
+					+ (cursor == null ? "" : "&cursor=" + cursor);
+			statistics.clear();
+			JsonNode data = fetch(url).get("data");
+			// Wersja książki do ETagu i jedna strona komentarzy
+			assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+
+			data.get("items").forEach(item -> ratings.add(item.get("rating").asInt()));
+			cursor = data.get("nextCursor").isNull() ? null : data.get("nextCursor").asText();
+			pages++;
+		} while (cursor != null);
+
+		assertThat(pages).isEqualTo(3);
+		assertThat(ratings).containsExactly(5, 5, 4, 3, 3, 2, 1);
+	}
+
+	@Test
+	void sortsByIdAndRejectsInvalidRequests() throws Exception {
+		JsonNode data = fetch("/api/books/" + book.getId() + "/comments?limit=10").get("data");
+		assertThat(data.get("items")).hasSize(7);
+		assertThat(data.get("items").get(0).get("content").asText()).isEqualTo("Ocena 3");
+		assertThat(data.get("nextCursor").isNull()).isTrue();
+
+		mockMvc.perform(authorized(get("/api/books/" + book.getId() + "/comments?sort=rating&cursor=xyz")))
+				.andExpect(status().isBadRequest());
+		mockMvc.perform(authorized(get("/api/books/" + book.getId() + "/comments?sort=title")))
+				.andExpect(status().isBadRequest());
+		mockMvc.perform(authorized(get("/api/books/" + (book.getId() + 1000) + "/comments")))
+				.andExpect(status().isNotFound());
+	}
+
+	private JsonNode fetch(String url) throws Exception {
+		String body = mockMvc.perform(authorized(get(url)))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		return objectMapper.readTree(body);
+	}
+
+	private static MockHttpServletRequestBuilder authorized(MockHttpServletRequestBuilder request) {
+		return request.with(jwt().authorities(new SimpleGrantedAuthority("ROLE_client_user")));
+	}
+}
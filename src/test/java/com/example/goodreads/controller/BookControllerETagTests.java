@@ -0,0 +1,121 @@
+package com.example.goodreads.controller;
+
+import com.example.goodreads.TestData;
+import com.example.goodreads.model.Book;
+import com.example.goodreads.model.Comment;
+import com.example.goodreads.service.BookService;
+import com.example.goodreads.service.BookStatsService;
+import com.example.goodreads.service.CommentService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import static com.example.goodreads.TestData.book;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class BookControllerETagTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private CommentService commentService;
+
+	@Autowired
+	private BookStatsService bookStatsService;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private TestData testData;
+
+	private Book book;
+
+	@BeforeEach
+	void setUp() throws InterruptedException {
+		// ETagi list powstają dopiero po uzupełnieniu tabeli statystyk przy starcie
+		while (!bookStatsService.isReady()) {
+			Thread.sleep(10);
+		}
+		testData.clear();
+
+		book = book("Lalka", "Bolesław Prus");
+		book = bookService.addBook(book);
+	}
+
+	@Test
+	void revalidationReturnsNotModifiedAfterOnlyAVersionLookup() throws Exception {
+		for (String url : new String[]{"/api/books/" + book.getId(), "/api/books/?limit=10",
+				"/api/books/" + book.getId() + "/comments", "/api/books/" + book.getId() + "/ratings"}) {
+			String eTag = mockMvc.perform(authorized(get(url)))
+					.andExpect(status().isOk())
+					.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+			assertThat(eTag).isNotBlank();
+
+			Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+			statistics.clear();
+			mockMvc.perform(authorized(get(url)).header(HttpHeaders.IF_NONE_MATCH, eTag))
+					.andExpect(status().isNotModified());
+			assertThat(statistics.getPrepareStatementCount()).isLessThanOrEqualTo(1);
+
+			Comment comment = new Comment();
+			comment.setContent("Świetna");
+			comment.setRating(5);
+			commentService.addComment(book.getId(), comment);
+
+			mockMvc.perform(authorized(get(url)).header(HttpHeaders.IF_NONE_MATCH, eTag))
+					.andExpect(status().isOk());
+		}
+	}
+
+	@Test
+	void changesCommittedByAnotherInstanceInvalidateETags() throws Exception {
+		String[] urls = {"/api/books/" + book.getId(), "/api/books/?limit=10"};
+		String[] eTags = new String[urls.length];
+		for (int i = 0; i < urls.length; i++) {
+			eTags[i] = mockMvc.perform(authorized(get(urls[i])))
+					.andExpect(status().isOk())
+					.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		}
+
+		// Zapis innej instancji: ta nie widzi go w swoim cache ani w pamięci, zostaje tylko wersja w bazie
+		jdbcTemplate.update("UPDATE book SET title = 'Emancypantki' WHERE id = ?", book.getId());
+		jdbcTemplate.update("UPDATE book_stats SET version = version + 1 WHERE book_id = ?", book.getId());
+
+		mockMvc.perform(authorized(get(urls[0])).header(HttpHeaders.IF_NONE_MATCH, eTags[0]))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.data.title").value("Emancypantki"));
+		mockMvc.perform(authorized(get(urls[1])).header(HttpHeaders.IF_NONE_MATCH, eTags[1]))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.data.items[0].title").value("Emancypantki"));
+	}
+
+	private static MockHttpServletRequestBuilder authorized(MockHttpServletRequestBuilder request) {
+		return request.with(jwt().authorities(new SimpleGrantedAuthority("ROLE_client_user")));
+	}
+}
@@ -0,0 +1,105 @@
+package com.example.goodreads.controller;
+
+import com.example.goodreads.TestData;
+import com.example.goodreads.model.Book;
+import com.example.goodreads.model.Comment;
+import com.example.goodreads.repository.BookRepository;
+import com.example.goodreads.repository.CommentRepository;
+import com.example.goodreads.service.BookService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.example.goodreads.TestData.book;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class BookControllerQueryCountTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private CommentRepository commentRepository;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private TestData testData;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void setUp() {
+		testData.clear();
+		for (int i = 0; i < 40; i++) {
+			Book book = book("Książka " + i, "Autor " + i);
+			bookRepository.save(book);
+
+			List<Comment> comments = new ArrayList<>();
+			for (int j = 0; j < 3; j++) {
+				Comment comment = new Comment();
+				comment.setContent("Komentarz " + j);
+				comment.setRating(j + 1);
+				comment.setBook(book);
+				comments.add(comment);
+			}
+			commentRepository.saveAll(comments);
+		}
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+	}
+
+	@Test
+	void listingIssuesConstantNumberOfStatementsRegardlessOfPageSize() throws Exception {
+		assertThat(statementsFor("/api/books/?limit=5"))
+				.isEqualTo(statementsFor("/api/books/?limit=40"));
+		assertThat(statementsFor("/api/books/?limit=5&include=comments"))
+				.isEqualTo(statementsFor("/api/books/?limit=40&include=comments"));
+		assertThat(statementsFor("/api/books/?limit=40&include=comments"))
+				.isEqualTo(statementsFor("/api/books/?limit=40") + 1);
+	}
+
+	@Test
+	void listingWithoutParametersReturnsFirstPage() throws Exception {
+		mockMvc.perform(get("/api/books/").with(jwt().authorities(new SimpleGrantedAuthority("ROLE_client_user"))))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.data.items.length()").value(BookService.DEFAULT_PAGE_SIZE))
+				.andExpect(jsonPath("$.data.nextCursor").isNotEmpty());
+	}
+
+	@Test
+	void listingWithInvalidCursorReturnsBadRequest() throws Exception {
+		mockMvc.perform(get("/api/books/").param("after", "nie-kursor!")
+						.with(jwt().authorities(new SimpleGrantedAuthority("ROLE_client_user"))))
+				.andExpect(status().isBadRequest())
+				.andExpect(jsonPath("$.message").value("Niepoprawny kursor stronicowania"));
+	}
+
+	private long statementsFor(String url) throws Exception {
+		statistics.clear();
+		mockMvc.perform(get(url).with(jwt().authorities(new SimpleGrantedAuthority("ROLE_client_user"))))
+				.andExpect(status().isOk());
+		return statistics.getPrepareStatementCount();
+	}
+}
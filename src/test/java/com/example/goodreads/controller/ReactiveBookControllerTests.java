@@ -0,0 +1,81 @@
+package com.example.goodreads.controller;
+
+import com.example.goodreads.TestData;
+import com.example.goodreads.model.Book;
+import com.example.goodreads.service.BookService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.charset.StandardCharsets;
+
+import static com.example.goodreads.TestData.book;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ReactiveBookControllerTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private TestData testData;
+
+	@BeforeEach
+	void setUp() {
+		testData.clear();
+	}
+
+	@Test
+	void streamsAllBooksAcrossPagesAsNdjson() throws Exception {
+		int count = BookService.MAX_PAGE_SIZE + 5;
+		for (int i = 0; i < count; i++) {
+			Book book = book("Tytuł " + i);
+			bookService.addBook(book);
+		}
+
+		MvcResult result = mockMvc.perform(get("/api/reactive/books/")
+						.accept(MediaType.APPLICATION_NDJSON)
+						.with(jwt().authorities(new SimpleGrantedAuthority("ROLE_client_user"))))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		result.getAsyncResult();
+
+		String body = result.getResponse().getContentAsString(StandardCharsets.UTF_8);
+		assertThat(body.lines().filter(line -> !line.isBlank())).hasSize(count);
+		assertThat(body.lines().findFirst().orElseThrow()).contains("\"title\":\"Tytuł 0\"");
+	}
+
+	@Test
+	void returnsBookByIdWithoutBlockingTheRequestThread() throws Exception {
+		Book book = book("Lalka", "Bolesław Prus");
+		book = bookService.addBook(book);
+
+		MvcResult result = mockMvc.perform(get("/api/reactive/books/" + book.getId())
+						.with(jwt().authorities(new SimpleGrantedAuthority("ROLE_client_user"))))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.data.title").value("Lalka"));
+	}
+}
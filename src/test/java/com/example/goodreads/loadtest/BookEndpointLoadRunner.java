@@ -0,0 +1,95 @@
+package com.example.goodreads.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Prosty generator obciążenia dla GET /api/books/{id} - nie jest uruchamiany przez surefire.
+ * <p>
+ * Porównanie trybów: uruchom aplikację raz z {@code spring.threads.virtual.enabled=false}, raz z {@code true}
+ * (przy spowolnionym MySQL, np. przez toxiproxy) i dla każdego trybu uruchom:
+ * <pre>
+ * mvn -B test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.example.goodreads.loadtest.BookEndpointLoadRunner \
+ *     -Dexec.args="http://localhost:8080 1 $TOKEN 500 30"
+ * </pre>
+ * Argumenty: adres aplikacji, id książki, token JWT, liczba równoległych klientów, czas testu w sekundach.
+ */
+public class BookEndpointLoadRunner {
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 3) {
+			System.err.println("Użycie: <baseUrl> <bookId> <token> [klienci=200] [sekundy=30]");
+			System.exit(1);
+		}
+		URI uri = URI.create(args[0] + "/api/books/" + args[1]);
+		String token = args[2];
+		int clients = args.length > 3 ? Integer.parseInt(args[3]) : 200;
+		Duration duration = Duration.ofSeconds(args.length > 4 ? Long.parseLong(args[4]) : 30);
+
+		HttpClient httpClient = HttpClient.newBuilder()
+				.executor(Executors.newVirtualThreadPerTaskExecutor())
+				.connectTimeout(Duration.ofSeconds(5))
+				.build();
+		HttpRequest request = HttpRequest.newBuilder(uri)
+				.header("Authorization", "Bearer " + token)
+				.timeout(Duration.ofSeconds(30))
+				.GET()
+				.build();
+
+		long deadline = System.nanoTime() + duration.toNanos();
+		AtomicLong ok = new AtomicLong();
+		AtomicLong rejected = new AtomicLong();
+		AtomicLong failed = new AtomicLong();
+		List<List<Long>> latencies = Collections.synchronizedList(new ArrayList<>());
+
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int i = 0; i < clients; i++) {
+				executor.submit(() -> {
+					List<Long> local = new ArrayList<>();
+					while (System.nanoTime() < deadline) {
+						long start = System.nanoTime();
+						try {
+							int status = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+							if (status == 200) {
+								ok.incrementAndGet();
+								local.add(System.nanoTime() - start);
+							} else if (status == 503) {
+								rejected.incrementAndGet();
+							} else {
+								failed.incrementAndGet();
+							}
+						} catch (Exception ex) {
+							failed.incrementAndGet();
+						}
+					}
+					latencies.add(local);
+				});
+			}
+		}
+
+		long[] sorted = latencies.stream().flatMap(List::stream).mapToLong(Long::longValue).sorted().toArray();
+		System.out.printf("klienci=%d czas=%ds%n", clients, duration.toSeconds());
+		System.out.printf("ok=%d odrzucone(503)=%d błędy=%d%n", ok.get(), rejected.get(), failed.get());
+		System.out.printf("przepustowość=%.1f req/s%n", ok.get() / (double) duration.toSeconds());
+		System.out.printf("p50=%.1f ms p99=%.1f ms max=%.1f ms%n",
+				percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 1.0));
+	}
+
+	private static double percentile(long[] sorted, double percentile) {
+		if (sorted.length == 0) {
+			return 0;
+		}
+		int index = (int) Math.ceil(percentile * sorted.length) - 1;
+		return sorted[Math.max(0, index)] / 1_000_000.0;
+	}
+}
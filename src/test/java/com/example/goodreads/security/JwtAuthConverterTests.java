@@ -0,0 +1,62 @@
+package com.example.goodreads.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AbstractAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtAuthConverterTests {
+
+	@Test
+	void mapsResourceRolesAndCreatesFreshTokenPerRequest() {
+		JwtAuthConverter converter = new JwtAuthConverter(100);
+		ReflectionTestUtils.setField(converter, "principleAttribute", "preferred_username");
+		ReflectionTestUtils.setField(converter, "resourceId", "api");
+		Jwt jwt = jwt("token-1", Instant.now().plusSeconds(300));
+
+		AbstractAuthenticationToken first = converter.convert(jwt);
+		AbstractAuthenticationToken second = converter.convert(jwt);
+
+		assertThat(first.getName()).isEqualTo("anna");
+		assertThat(first.getAuthorities()).extracting(GrantedAuthority::getAuthority)
+				.contains("ROLE_client_user", "SCOPE_profile");
+		assertThat(second).isNotSameAs(first);
+		assertThat(second.getAuthorities()).containsExactlyInAnyOrderElementsOf(first.getAuthorities());
+	}
+
+	@Test
+	void decoderVerifiesEachTokenOnlyOnceWhileItIsValid() {
+		AtomicInteger decodes = new AtomicInteger();
+		JwtDecoder delegate = token -> {
+			decodes.incrementAndGet();
+			return jwt(token, Instant.now().plusSeconds(300));
+		};
+		CachingJwtDecoder decoder = new CachingJwtDecoder(delegate, 100);
+
+		decoder.decode("token-1");
+		decoder.decode("token-1");
+		decoder.decode("token-2");
+
+		assertThat(decodes).hasValue(2);
+	}
+
+	private static Jwt jwt(String tokenValue, Instant expiresAt) {
+		return Jwt.withTokenValue(tokenValue)
+				.header("alg", "RS256")
+				.claim("preferred_username", "anna")
+				.claim("scope", "profile")
+				.claim("resource_access", Map.of("api", Map.of("roles", List.of("client_user"))))
+				.issuedAt(expiresAt.minusSeconds(600))
+				.expiresAt(expiresAt)
+				.build();
+	}
+}
@@ -0,0 +1,45 @@
+package com.example.goodreads.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class RoleInterceptorTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Test
+	void adminEndpointRequiresAdminRole() throws Exception {
+		mockMvc.perform(get("/api/metrics/book-cache")
+						.with(jwt().authorities(new SimpleGrantedAuthority("ROLE_client_user"))))
+				.andExpect(status().isForbidden());
+
+		mockMvc.perform(get("/api/metrics/book-cache")
+						.with(jwt().authorities(new SimpleGrantedAuthority("ROLE_client_admin"))))
+				.andExpect(status().isOk());
+	}
+
+	@Test
+	void maskContainsOnlyKnownRoles() {
+		int mask = Role.maskOf(List.of(new SimpleGrantedAuthority("ROLE_client_admin"),
+				new SimpleGrantedAuthority("SCOPE_profile")));
+
+		assertThat(mask & Role.CLIENT_ADMIN.bit()).isNotZero();
+		assertThat(mask & Role.CLIENT_USER.bit()).isZero();
+	}
+}
@@ -0,0 +1,64 @@
+package com.example.goodreads.service;
+
+import com.example.goodreads.TestData;
+import com.example.goodreads.dto.BookDetails;
+import com.example.goodreads.model.Book;
+import com.example.goodreads.model.Comment;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static com.example.goodreads.TestData.book;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class BookCacheTests {
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private CommentService commentService;
+
+	@Autowired
+	private BookCache bookCache;
+
+	@Autowired
+	private TestData testData;
+
+	private Book book;
+
+	@BeforeEach
+	void setUp() {
+		testData.clear();
+
+		book = book("Lalka", "Bolesław Prus");
+		book = bookService.addBook(book);
+	}
+
+	@Test
+	void servesRepeatedLookupsFromCacheUntilBookChanges() {
+		long hitsBefore = bookCache.stats().hitCount();
+
+		BookDetails first = bookService.findBookById(book.getId());
+		BookDetails second = bookService.findBookById(book.getId());
+
+		assertThat(second).isSameAs(first);
+		assertThat(bookCache.stats().hitCount()).isEqualTo(hitsBefore + 1);
+
+		Comment comment = new Comment();
+		comment.setContent("Świetna");
+		comment.setRating(5);
+		commentService.addComment(book.getId(), comment);
+
+		assertThat(bookService.findBookById(book.getId()).getComments()).hasSize(1);
+
+		Book changes = book("Emancypantki", "Bolesław Prus");
+		bookService.updateBook(book.getId(), changes);
+
+		assertThat(bookService.findBookById(book.getId()).getTitle()).isEqualTo("Emancypantki");
+	}
+}
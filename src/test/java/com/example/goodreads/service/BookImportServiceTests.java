@@ -0,0 +1,134 @@
+package com.example.goodreads.service;
+
+import com.example.goodreads.TestData;
+import com.example.goodreads.dto.ImportReport;
+import com.example.goodreads.model.Book;
+import com.example.goodreads.repository.BookRepository;
+import com.example.goodreads.repository.BookStatsRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "goodreads.import.batch-size=2")
+@ActiveProfiles("test")
+class BookImportServiceTests {
+
+	@Autowired
+	private BookImportService bookImportService;
+
+	@Autowired
+	private CatalogExportService catalogExportService;
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private BookStatsRepository bookStatsRepository;
+
+	@Autowired
+	private TestData testData;
+
+	@Autowired
+	private BookSearchIndex bookSearchIndex;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@BeforeEach
+	void setUp() {
+		testData.clear();
+	}
+
+	@Test
+	void importsValidRecordsInBatchesAndReportsInvalidOnes() throws Exception {
+		String ndjson = """
+				{"id":999,"title":"Lalka","author":"Bolesław Prus","description":"Opis","genre":"Powieść"}
+				{"title":"","author":"Autor","description":"Opis","genre":"Powieść"}
+
+				{"title":"Quo vadis","author":"Henryk Sienkiewicz","description":"Opis","genre":"Historyczna"}
+				{nie json
+				{"title":"Potop","author":"Henryk Sienkiewicz","description":"Opis","genre":"Historyczna"}
+				""";
+
+		ImportReport report = bookImportService.importBooks(ExportFormat.NDJSON, stream(ndjson));
+
+		assertThat(report.getTotal()).isEqualTo(5);
+		assertThat(report.getImported()).isEqualTo(3);
+		assertThat(report.getRejected()).isEqualTo(2);
+		assertThat(report.getErrors()).extracting(ImportReport.RecordError::getRecord).containsExactly(2L, 4L);
+		assertThat(report.getErrors().get(0).getMessage()).startsWith("title:");
+
+		// Zaimportowane książki mają statystyki, są w indeksie i dostały nowe identyfikatory
+		assertThat(bookRepository.count()).isEqualTo(3);
+		assertThat(bookStatsRepository.count()).isEqualTo(3);
+		assertThat(bookRepository.findById(999L)).isNull();
+		assertThat(bookService.findBooksByTitle("potop", 10)).extracting(Book::getTitle).containsExactly("Potop");
+	}
+
+	@Test
+	void importsCsvProducedByExport() throws Exception {
+		Book book = new Book();
+		book.setTitle("Lalka, tom 1");
+		book.setAuthor("Bolesław Prus");
+		book.setDescription("Powieść \"realistyczna\"\nwielowierszowy opis");
+		book.setGenre("Powieść");
+		bookService.addBook(book);
+
+		ByteArrayOutputStream exported = new ByteArrayOutputStream();
+		catalogExportService.exportBooks(ExportFormat.CSV, exported);
+		ImportReport report = bookImportService.importBooks(ExportFormat.CSV,
+				new ByteArrayInputStream(exported.toByteArray()));
+
+		assertThat(report.getImported()).isEqualTo(1);
+		assertThat(report.getErrors()).isEmpty();
+		assertThat(bookRepository.findAll()).extracting(Book::getDescription)
+				.containsOnly("Powieść \"realistyczna\"\nwielowierszowy opis");
+	}
+
+	@Test
+	void rolledBackChunkIsNotIndexedForSearch() {
+		transactionTemplate.executeWithoutResult(status -> {
+			Book book = bookRepository.save(TestData.book("Wycofany tytuł"));
+			bookService.registerImportedBooks(List.of(book));
+			status.setRollbackOnly();
+		});
+
+		assertThat(bookSearchIndex.search("Wycofany", 10)).isEmpty();
+	}
+
+	@Test
+	void rolledBackEditsLeaveSearchIndexUntouched() {
+		Book book = bookService.addBook(TestData.book("Nad Niemnem"));
+
+		transactionTemplate.executeWithoutResult(status -> {
+			bookService.addBook(TestData.book("Wycofany tytuł"));
+			bookService.updateBook(book.getId(), TestData.book("Emancypantki"));
+			status.setRollbackOnly();
+		});
+		transactionTemplate.executeWithoutResult(status -> {
+			bookService.deleteBook(book.getId());
+			status.setRollbackOnly();
+		});
+
+		assertThat(bookSearchIndex.search("Wycofany", 10)).isEmpty();
+		assertThat(bookSearchIndex.search("Emancyp", 10)).isEmpty();
+		assertThat(bookSearchIndex.search("Nad Niemnem", 10)).containsExactly(book.getId());
+	}
+
+	private static ByteArrayInputStream stream(String content) {
+		return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+	}
+}
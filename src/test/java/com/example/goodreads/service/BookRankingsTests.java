@@ -0,0 +1,75 @@
+package com.example.goodreads.service;
+
+import com.example.goodreads.model.BookStats;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BookRankingsTests {
+
+	@Test
+	void keepsRankingsCurrentAsCountersChange() {
+		BookRankings rankings = new BookRankings();
+		rankings.load(List.of(stats(1L, 10, 2, 5), stats(2L, 3, 1, 7), stats(3L, 0, 0, 1)));
+
+		assertThat(ids(rankings.top(RankingMetric.COMMENTS, 2))).containsExactly(1L, 2L);
+		assertThat(ids(rankings.top(RankingMetric.READERS, 3))).containsExactly(2L, 1L, 3L);
+		assertThat(ids(rankings.top(RankingMetric.RATING, 10))).containsExactly(1L, 2L);
+
+		rankings.applyCommentDelta(3L, 5, 1);
+		rankings.applyCommentDelta(3L, 5, 1);
+		rankings.applyCommentDelta(3L, 5, 1);
+		rankings.removeBook(2L);
+
+		assertThat(ids(rankings.top(RankingMetric.COMMENTS, 2))).containsExactly(3L, 1L);
+		assertThat(rankings.top(RankingMetric.RATING, 1)).singleElement()
+				.satisfies(entry -> assertThat(entry.score()).isEqualTo(5.0));
+		assertThat(ids(rankings.top(RankingMetric.READERS, 10))).containsExactly(1L, 3L);
+	}
+
+	@Test
+	void loadKeepsChangesCommittedWhileTheSnapshotWasRead() {
+		BookRankings rankings = new BookRankings();
+		rankings.load(List.of(stats(1L, 10, 2, 5)));
+
+		rankings.beginLoad();
+		rankings.applyCommentDelta(1L, 5, 1);
+		rankings.applyReaderDelta(1L, 1);
+		rankings.load(List.of(stats(1L, 10, 2, 5)));
+
+		assertThat(rankings.top(RankingMetric.COMMENTS, 1)).singleElement()
+				.satisfies(entry -> assertThat(entry.score()).isEqualTo(3.0));
+		assertThat(rankings.top(RankingMetric.READERS, 1)).singleElement()
+				.satisfies(entry -> assertThat(entry.score()).isEqualTo(6.0));
+	}
+
+	@Test
+	void deletedBooksAreNotRecreatedByLateChangesOrTheSnapshot() {
+		BookRankings rankings = new BookRankings();
+		rankings.beginLoad();
+		rankings.removeBook(2L);
+		rankings.load(List.of(stats(1L, 10, 2, 5), stats(2L, 3, 1, 7)));
+
+		rankings.removeBook(1L);
+		rankings.applyCommentDelta(1L, 5, 1);
+		rankings.applyReaderDelta(2L, 1);
+
+		assertThat(rankings.contains(1L)).isFalse();
+		assertThat(rankings.contains(2L)).isFalse();
+		assertThat(rankings.top(RankingMetric.COMMENTS, 10)).isEmpty();
+	}
+
+	private static List<Long> ids(List<BookRankings.Entry> entries) {
+		return entries.stream().map(BookRankings.Entry::bookId).toList();
+	}
+
+	private static BookStats stats(Long bookId, long ratingSum, long commentCount, long readerCount) {
+		BookStats stats = new BookStats(bookId);
+		stats.setRatingSum(ratingSum);
+		stats.setCommentCount(commentCount);
+		stats.setReaderCount(readerCount);
+		return stats;
+	}
+}
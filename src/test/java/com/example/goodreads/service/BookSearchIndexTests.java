@@ -0,0 +1,77 @@
+package com.example.goodreads.service;
+
+import com.example.goodreads.model.Book;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BookSearchIndexTests {
+
+	private BookSearchIndex index;
+
+	@BeforeEach
+	void setUp() {
+		index = new BookSearchIndex();
+		index.startRebuild();
+		index.indexFromRebuild(List.of(
+				book(1L, "Pan Tadeusz", "Adam Mickiewicz", "Epopeja"),
+				book(2L, "Lalka", "Bolesław Prus", "Powieść"),
+				book(3L, "Panny z Wilka", "Jarosław Iwaszkiewicz", "Opowiadanie"),
+				book(4L, "Ogniem i mieczem", "Henryk Sienkiewicz", "Powieść historyczna")));
+		index.finishRebuild();
+	}
+
+	@Test
+	void matchesPrefixesCaseAndDiacriticsInsensitive() {
+		assertThat(index.search("PAN", 10)).containsExactly(1L, 3L);
+		assertThat(index.search("boleslaw", 10)).containsExactly(2L);
+		assertThat(index.search("powiesc", 10)).containsExactlyInAnyOrder(2L, 4L);
+	}
+
+	@Test
+	void ranksTitleMatchesAboveGenreMatchesAndRequiresAllTokens() {
+		index.index(book(5L, "Historia Polski", "Norman Davies", "Literatura faktu"));
+
+		assertThat(index.search("histor", 10)).containsExactly(5L, 4L);
+		assertThat(index.search("powieść sienk", 10)).containsExactly(4L);
+		assertThat(index.search("histor", 1)).containsExactly(5L);
+	}
+
+	@Test
+	void keepsIndexInSyncWithUpdatesAndDeletes() {
+		index.index(book(2L, "Emancypantki", "Bolesław Prus", "Powieść"));
+		index.remove(1L);
+
+		assertThat(index.search("lalka", 10)).isEmpty();
+		assertThat(index.search("emancyp", 10)).containsExactly(2L);
+		assertThat(index.search("tadeusz", 10)).isEmpty();
+	}
+
+	@Test
+	void doesNotOverwriteNewerDocumentsDuringRebuild() {
+		index.startRebuild();
+		index.index(book(2L, "Emancypantki", "Bolesław Prus", "Powieść"));
+		index.remove(4L);
+		index.indexFromRebuild(List.of(
+				book(2L, "Lalka", "Bolesław Prus", "Powieść"),
+				book(4L, "Ogniem i mieczem", "Henryk Sienkiewicz", "Powieść historyczna")));
+		index.finishRebuild();
+
+		assertThat(index.search("lalka", 10)).isEmpty();
+		assertThat(index.search("emancypantki", 10)).containsExactly(2L);
+		assertThat(index.search("ogniem", 10)).isEmpty();
+	}
+
+	private static Book book(Long id, String title, String author, String genre) {
+		Book book = new Book();
+		book.setId(id);
+		book.setTitle(title);
+		book.setAuthor(author);
+		book.setDescription("");
+		book.setGenre(genre);
+		return book;
+	}
+}
@@ -0,0 +1,219 @@
+package com.example.goodreads.service;
+
+import com.example.goodreads.TestData;
+import com.example.goodreads.dto.BookReadingStats;
+import com.example.goodreads.model.Book;
+import com.example.goodreads.model.Comment;
+import com.example.goodreads.model.UsersBook;
+import com.example.goodreads.repository.BookRepository;
+import com.example.goodreads.repository.BookStatsRepository;
+import com.example.goodreads.repository.CommentRepository;
+import com.example.goodreads.repository.UsersBookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.goodreads.TestData.book;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class BookStatsServiceTests {
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private CommentService commentService;
+
+	@Autowired
+	private UsersBookService usersBookService;
+
+	@Autowired
+	private BookStatsService bookStatsService;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private BookStatsRepository bookStatsRepository;
+
+	@Autowired
+	private CommentRepository commentRepository;
+
+	@Autowired
+	private UsersBookRepository usersBookRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private TestData testData;
+
+	private Book popular;
+	private Book quiet;
+
+	@BeforeEach
+	void setUp() {
+		testData.clear();
+
+		popular = bookService.addBook(book("Lalka"));
+		quiet = bookService.addBook(book("Przedwiośnie"));
+
+		for (int rating : new int[]{5, 4, 3}) {
+			commentService.addComment(popular.getId(), comment(rating));
+		}
+		commentService.addComment(quiet.getId(), comment(2));
+
+		for (String username : List.of("anna", "jan")) {
+			usersBookService.changeStatusForBook(username, popular.getId(), UsersBook.Status.WANT_READ);
+			usersBookService.changeStatusForBook(username, popular.getId(), UsersBook.Status.READED);
+		}
+		usersBookService.changeStatusForBook("ewa", quiet.getId(), UsersBook.Status.WANT_READ);
+	}
+
+	@Test
+	void readCountIsNotInflatedByCommentsOfTheSameBook() {
+		List<BookReadingStats> rows = bookRepository.findBooksWithReadCountAndAverageRating();
+
+		assertThat(rows).hasSize(2);
+		assertThat(rows.get(0).id()).isEqualTo(popular.getId());
+		assertThat(rows.get(0).readCount()).isEqualTo(2L);
+		assertThat(rows.get(0).averageRating()).isEqualTo(4.0);
+		assertThat(rows.get(1).readCount()).isZero();
+	}
+
+	@Test
+	void statsRowFollowsCommentEditsShelfChangesAndBookDeletion() {
+		Book removed = bookService.addBook(book("Do usunięcia"));
+		Long commentId = commentRepository.findAll().stream()
+				.filter(comment -> comment.getRating() == 5)
+				.findFirst().orElseThrow().getId();
+
+		commentService.updateComment(popular.getId(), commentId, "Jednak słaba", 1);
+		usersBookService.changeStatusForBook("anna", popular.getId(), UsersBook.Status.WANT_READ);
+		usersBookService.changeStatusForBook("jan", popular.getId(), UsersBook.Status.UNREAD);
+		bookService.deleteBook(removed.getId());
+
+		assertThat(bookStatsRepository.findById(popular.getId())).hasValueSatisfying(stats -> {
+			assertThat(stats.getRatingSum()).isEqualTo(8L);
+			assertThat(stats.getCommentCount()).isEqualTo(3L);
+			assertThat(stats.getCommentLengthSum()).isEqualTo(2 * "Ocena 4".length() + "Jednak słaba".length());
+			assertThat(stats.getReadCount()).isZero();
+			assertThat(stats.getReaderCount()).isEqualTo(1L);
+		});
+		assertThat(bookStatsRepository.findById(removed.getId())).isEmpty();
+	}
+
+	@Test
+	void incrementalStatsMatchAggregateQueries() {
+		bookStatsService.backfill();
+		assertThat(bookStatsService.isReady()).isTrue();
+
+		assertThat(bookStatsRepository.findBooksWithReadCountAndAverageRating())
+				.containsExactlyElementsOf(bookRepository.findBooksWithReadCountAndAverageRating());
+		assertThat(bookStatsRepository.findAverageCommentLengthPerBook())
+				.containsExactlyElementsOf(bookRepository.findAverageCommentLengthPerBook());
+		assertThat(bookStatsRepository.findBooksWithReadersCount())
+				.hasSize(2)
+				.containsExactlyInAnyOrderElementsOf(bookRepository.findBooksWithReadersCount());
+	}
+
+	@Test
+	void backfillRecomputesMissingRowsFromSourceTables() {
+		bookStatsRepository.deleteAllInBatch();
+
+		bookStatsService.backfill();
+
+		assertThat(bookStatsRepository.findById(popular.getId())).hasValueSatisfying(stats -> {
+			assertThat(stats.getRatingSum()).isEqualTo(12L);
+			assertThat(stats.getCommentCount()).isEqualTo(3L);
+			assertThat(stats.getReadCount()).isEqualTo(2L);
+			assertThat(stats.getReaderCount()).isEqualTo(2L);
+			assertThat(stats.getRatingHistogram()).containsExactly(0, 0, 1, 1, 1);
+		});
+	}
+
+	@Test
+	void backfillCountsWritesThatMissedTheRowAndCommittedAfterItsSnapshot() throws Exception {
+		bookStatsRepository.deleteAllInBatch();
+		// Symulujemy start na bazie bez wierszy statystyk: zapis trafia przed INSERT ... SELECT, commit po nim
+		Object target = AopTestUtils.getUltimateTargetObject(bookStatsService);
+		ReflectionTestUtils.setField(target, "ready", false);
+		CountDownLatch applied = new CountDownLatch(1);
+		CountDownLatch commit = new CountDownLatch(1);
+
+		Thread writer = Thread.ofPlatform().start(() -> transactionTemplate.executeWithoutResult(status -> {
+			commentService.addComment(popular.getId(), comment(5));
+			applied.countDown();
+			try {
+				commit.await();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}));
+		assertThat(applied.await(5, TimeUnit.SECONDS)).isTrue();
+
+		Thread backfill = Thread.ofPlatform().start(bookStatsService::backfill);
+		while (bookStatsRepository.count() < 2) {
+			Thread.sleep(10);
+		}
+		commit.countDown();
+		writer.join();
+		backfill.join();
+
+		assertThat(bookStatsRepository.findById(popular.getId())).hasValueSatisfying(stats -> {
+			assertThat(stats.getRatingSum()).isEqualTo(17L);
+			assertThat(stats.getCommentCount()).isEqualTo(4L);
+			assertThat(stats.getRatingHistogram()).containsExactly(0, 0, 1, 1, 2);
+		});
+	}
+
+	@Test
+	void ratingHistogramFollowsAddedEditedAndDeletedComments() {
+		bookStatsService.backfill();
+		Long commentId = commentRepository.findAll().stream()
+				.filter(comment -> comment.getRating() == 5)
+				.findFirst().orElseThrow().getId();
+
+		commentService.updateComment(popular.getId(), commentId, "Jednak słaba", 1);
+		commentService.addComment(popular.getId(), comment(4));
+		commentService.deleteComment(quiet.getId(), commentRepository.findAll().stream()
+				.filter(comment -> comment.getRating() == 2)
+				.findFirst().orElseThrow().getId());
+
+		long[] expectedPopular = {1, 0, 1, 2, 0};
+		assertThat(bookStatsService.getRatingHistogram(popular.getId())).containsExactly(expectedPopular);
+		assertThat(bookStatsRepository.findById(popular.getId()).orElseThrow().getRatingHistogram())
+				.containsExactly(expectedPopular);
+		assertThat(bookStatsService.getRatingHistogram(quiet.getId())).containsExactly(0, 0, 0, 0, 0);
+	}
+
+	@Test
+	void backfillRecountsHistogramsOfRowsCreatedBeforeTheColumnsExisted() {
+		transactionTemplate.executeWithoutResult(status -> bookStatsRepository.applyCommentDelta(
+				popular.getId(), 0, 0, 0, new long[]{0, 0, -1, -1, -1}));
+
+		bookStatsService.backfill();
+
+		assertThat(bookStatsRepository.findById(popular.getId()).orElseThrow().getRatingHistogram())
+				.containsExactly(0, 0, 1, 1, 1);
+		assertThat(bookStatsService.getRatingHistogram(popular.getId())).containsExactly(0, 0, 1, 1, 1);
+	}
+
+	private static Comment comment(int rating) {
+		Comment comment = new Comment();
+		comment.setContent("Ocena " + rating);
+		comment.setRating(rating);
+		return comment;
+	}
+}
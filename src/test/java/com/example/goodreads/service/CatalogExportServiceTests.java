@@ -0,0 +1,115 @@
+package com.example.goodreads.service;
+
+import com.example.goodreads.TestData;
+import com.example.goodreads.model.Book;
+import com.example.goodreads.model.Comment;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class CatalogExportServiceTests {
+
+	@Autowired
+	private CatalogExportService catalogExportService;
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private CommentService commentService;
+
+	@Autowired
+	private TestData testData;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	private Book book;
+
+	@BeforeEach
+	void setUp() {
+		testData.clear();
+
+		book = new Book();
+		book.setTitle("Lalka, tom 1");
+		book.setAuthor("Bolesław Prus");
+		book.setDescription("Powieść \"realistyczna\"");
+		book.setGenre("Powieść");
+		book = bookService.addBook(book);
+
+		Book second = new Book();
+		second.setTitle("Quo vadis");
+		second.setAuthor("Henryk Sienkiewicz");
+		second.setDescription("Opis");
+		second.setGenre("Historyczna");
+		bookService.addBook(second);
+
+		Comment comment = new Comment();
+		comment.setContent("Świetna");
+		comment.setRating(5);
+		commentService.addComment(book.getId(), comment);
+	}
+
+	@Test
+	void exportsBooksAsNdjson() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+		long rows = catalogExportService.exportBooks(ExportFormat.NDJSON, out);
+
+		List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+		assertThat(rows).isEqualTo(2);
+		assertThat(lines).hasSize(2);
+		assertThat(lines.get(0)).isEqualTo("{\"id\":" + book.getId() + ",\"title\":\"Lalka, tom 1\","
+				+ "\"author\":\"Bolesław Prus\",\"description\":\"Powieść \\\"realistyczna\\\"\",\"genre\":\"Powieść\"}");
+	}
+
+	@Test
+	void exportsBooksAndCommentsAsEscapedCsv() throws Exception {
+		ByteArrayOutputStream books = new ByteArrayOutputStream();
+		ByteArrayOutputStream comments = new ByteArrayOutputStream();
+
+		catalogExportService.exportBooks(ExportFormat.CSV, books);
+		catalogExportService.exportComments(ExportFormat.CSV, comments);
+
+		List<String> bookLines = books.toString(StandardCharsets.UTF_8).lines().toList();
+		assertThat(bookLines.get(0)).isEqualTo("id,title,author,description,genre");
+		assertThat(bookLines.get(1)).isEqualTo(book.getId()
+				+ ",\"Lalka, tom 1\",Bolesław Prus,\"Powieść \"\"realistyczna\"\"\",Powieść");
+		assertThat(bookLines).hasSize(3);
+		assertThat(comments.toString(StandardCharsets.UTF_8).lines().toList().get(1))
+				.endsWith("," + book.getId() + ",Świetna,5");
+	}
+
+	@Test
+	void exportResponseGetsItsOwnAsyncTimeout() throws Exception {
+		MvcResult result = mockMvc.perform(get("/api/books/export")
+						.with(jwt().authorities(new SimpleGrantedAuthority("ROLE_client_admin"))))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		assertThat(result.getRequest().getAsyncContext().getTimeout()).isEqualTo(Duration.ofMinutes(30).toMillis());
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk());
+	}
+}
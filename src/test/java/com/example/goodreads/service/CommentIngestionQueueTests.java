@@ -0,0 +1,82 @@
+package com.example.goodreads.service;
+
+import com.example.goodreads.TestData;
+import com.example.goodreads.model.Book;
+import com.example.goodreads.model.BookStats;
+import com.example.goodreads.model.Comment;
+import com.example.goodreads.repository.BookStatsRepository;
+import com.example.goodreads.repository.CommentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static com.example.goodreads.TestData.book;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "goodreads.comments.async.enabled=true")
+@ActiveProfiles("test")
+class CommentIngestionQueueTests {
+
+	@Autowired
+	private CommentIngestionQueue commentIngestionQueue;
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private BookStatsRepository bookStatsRepository;
+
+	@Autowired
+	private CommentRepository commentRepository;
+
+	@Autowired
+	private TestData testData;
+
+	private Book book;
+
+	@BeforeEach
+	void setUp() {
+		testData.clear();
+
+		book = book("Lalka", "Bolesław Prus");
+		book = bookService.addBook(book);
+	}
+
+	@AfterEach
+	void restart() {
+		if (!commentIngestionQueue.isRunning()) {
+			commentIngestionQueue.start();
+		}
+	}
+
+	@Test
+	void stopDrainsQueuedCommentsAndRejectsNewOnes() {
+		for (int i = 1; i <= 5; i++) {
+			assertThat(commentIngestionQueue.submit(book.getId(), comment(i))).isTrue();
+		}
+		// Komentarz do nieistniejącej książki jest pomijany przy zapisie paczki
+		assertThat(commentIngestionQueue.submit(book.getId() + 1000, comment(1))).isTrue();
+
+		commentIngestionQueue.stop();
+
+		assertThat(commentIngestionQueue.depth()).isZero();
+		assertThat(commentRepository.count()).isEqualTo(5);
+		BookStats stats = bookStatsRepository.findById(book.getId()).orElseThrow();
+		assertThat(stats.getCommentCount()).isEqualTo(5);
+		assertThat(stats.getRatingSum()).isEqualTo(15);
+		assertThat(commentIngestionQueue.dropped()).isEqualTo(1);
+		assertThat(commentIngestionQueue.failed()).isZero();
+
+		assertThat(commentIngestionQueue.submit(book.getId(), comment(3))).isFalse();
+	}
+
+	private static Comment comment(int rating) {
+		Comment comment = new Comment();
+		comment.setContent("Ocena " + rating);
+		comment.setRating(rating);
+		return comment;
+	}
+}
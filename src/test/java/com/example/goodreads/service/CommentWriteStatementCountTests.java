@@ -0,0 +1,136 @@
+package com.example.goodreads.service;
+
+import com.example.goodreads.TestData;
+import com.example.goodreads.model.Book;
+import com.example.goodreads.model.BookStats;
+import com.example.goodreads.model.Comment;
+import com.example.goodreads.repository.BookStatsRepository;
+import com.example.goodreads.repository.CommentRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.CountDownLatch;
+
+import static com.example.goodreads.TestData.book;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class CommentWriteStatementCountTests {
+
+	@Autowired
+	private CommentService commentService;
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private BookStatsRepository bookStatsRepository;
+
+	@Autowired
+	private CommentRepository commentRepository;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private TestData testData;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	private Book book;
+	private Book otherBook;
+	private Statistics statistics;
+
+	@BeforeEach
+	void setUp() {
+		testData.clear();
+
+		book = bookService.addBook(book("Lalka"));
+		otherBook = bookService.addBook(book("Quo vadis"));
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+	}
+
+	@Test
+	void addingCommentInsertsItAndUpdatesStatsWithoutLoadingTheBook() {
+		statistics.clear();
+		commentService.addComment(book.getId(), comment("Świetna", 5));
+
+		// UPDATE statystyk (sprawdza też istnienie książki) + INSERT komentarza
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+		assertThat(stats(book).getCommentCount()).isEqualTo(1);
+
+		assertThatThrownBy(() -> commentService.addComment(otherBook.getId() + 1000, comment("Brak", 1)))
+				.isInstanceOf(BookNotFoundException.class);
+		assertThat(commentRepository.count()).isEqualTo(1);
+	}
+
+	@Test
+	void editingAndDeletingUseConditionalStatements() {
+		commentService.addComment(book.getId(), comment("Dobra", 4));
+		Long commentId = commentRepository.findAll().get(0).getId();
+
+		statistics.clear();
+		commentService.updateComment(book.getId(), commentId, "Średnia", 2);
+		// odczyt starej oceny + warunkowe UPDATE komentarza + UPDATE statystyk
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+		assertThat(stats(book).getRatingSum()).isEqualTo(2);
+
+		// Komentarz nie należy do tej książki - nic nie jest zmieniane
+		assertThatThrownBy(() -> commentService.deleteComment(otherBook.getId(), commentId))
+				.isInstanceOf(CommentNotFoundException.class);
+
+		statistics.clear();
+		commentService.deleteComment(book.getId(), commentId);
+		assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+		assertThat(commentRepository.count()).isZero();
+		assertThat(stats(book).getCommentCount()).isZero();
+		assertThat(stats(book).getCommentLengthSum()).isZero();
+	}
+
+	@Test
+	void deleteWaitsForConcurrentEditBeforeReadingTheOldRating() throws Exception {
+		commentService.addComment(book.getId(), comment("Dobra", 4));
+		Long commentId = commentRepository.findAll().get(0).getId();
+		CountDownLatch edited = new CountDownLatch(1);
+
+		// Edycja trzyma wiersz niezatwierdzony; usunięcie musi odczytać ocenę dopiero po jej zatwierdzeniu
+		Thread editor = new Thread(() -> transactionTemplate.executeWithoutResult(status -> {
+			commentService.updateComment(book.getId(), commentId, "Średnia", 2);
+			edited.countDown();
+			try {
+				Thread.sleep(300);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}));
+		editor.start();
+		edited.await();
+
+		commentService.deleteComment(book.getId(), commentId);
+		editor.join();
+
+		assertThat(stats(book).getRatingSum()).isZero();
+		assertThat(stats(book).getCommentLengthSum()).isZero();
+	}
+
+	private BookStats stats(Book book) {
+		return bookStatsRepository.findById(book.getId()).orElseThrow();
+	}
+
+	private static Comment comment(String content, int rating) {
+		Comment comment = new Comment();
+		comment.setContent(content);
+		comment.setRating(rating);
+		return comment;
+	}
+}
@@ -0,0 +1,44 @@
+package com.example.goodreads.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CursorTests {
+
+	@Test
+	void decodesWhatItEncodes() {
+		assertThat(Cursor.decode(Cursor.encode(42L), 1)).containsExactly(42L);
+		assertThat(Cursor.decode(Cursor.encode(7L, 1234L), 2)).containsExactly(7L, 1234L);
+	}
+
+	@Test
+	void rejectsCursorWithWrongNumberOfKeys() {
+		assertThatThrownBy(() -> Cursor.decode(Cursor.encode(7L, 1234L), 1))
+				.isInstanceOf(InvalidCursorException.class);
+		assertThatThrownBy(() -> Cursor.decode(Cursor.encode(7L), 2))
+				.isInstanceOf(InvalidCursorException.class);
+		assertThatThrownBy(() -> Cursor.decode(raw("7:1234:"), 2))
+				.isInstanceOf(InvalidCursorException.class);
+	}
+
+	@Test
+	void rejectsTamperedCursor() {
+		assertThatThrownBy(() -> Cursor.decode("nie-base64!", 1))
+				.isInstanceOf(InvalidCursorException.class);
+		assertThatThrownBy(() -> Cursor.decode(raw("abc"), 1))
+				.isInstanceOf(InvalidCursorException.class);
+		assertThatThrownBy(() -> Cursor.decode(raw("7:"), 2))
+				.isInstanceOf(InvalidCursorException.class);
+		assertThatThrownBy(() -> Cursor.decode("", 1))
+				.isInstanceOf(InvalidCursorException.class);
+	}
+
+	private static String raw(String value) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,50 @@
+package com.example.goodreads.service;
+
+import com.example.goodreads.model.BookStats;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RatingHistogramsTests {
+
+	@Test
+	void loadKeepsChangesCommittedWhileTheSnapshotWasRead() {
+		RatingHistograms histograms = new RatingHistograms();
+		histograms.load(List.of(stats(1L, 2, 0)));
+
+		histograms.beginLoad();
+		histograms.apply(1L, RatingHistograms.delta(5, 0));
+		histograms.load(List.of(stats(1L, 2, 0)));
+
+		assertThat(histograms.get(1L)).containsExactly(2, 0, 0, 0, 1);
+	}
+
+	@Test
+	void deletedBooksAreNotRecreatedByLateChangesOrTheSnapshot() {
+		RatingHistograms histograms = new RatingHistograms();
+		histograms.beginLoad();
+		histograms.remove(2L);
+		histograms.load(List.of(stats(1L, 1, 1), stats(2L, 3, 0)));
+
+		histograms.remove(1L);
+		histograms.apply(1L, RatingHistograms.delta(5, 0));
+		histograms.apply(2L, RatingHistograms.delta(4, 0));
+		histograms.apply(3L, RatingHistograms.delta(3, 0));
+		histograms.addBook(4L);
+		histograms.apply(4L, RatingHistograms.delta(2, 0));
+
+		assertThat(histograms.get(1L)).containsOnly(0);
+		assertThat(histograms.get(2L)).containsOnly(0);
+		assertThat(histograms.get(3L)).containsOnly(0);
+		assertThat(histograms.get(4L)).containsExactly(0, 1, 0, 0, 0);
+	}
+
+	private static BookStats stats(Long bookId, long rating1, long rating5) {
+		BookStats stats = new BookStats(bookId);
+		stats.setRating1(rating1);
+		stats.setRating5(rating5);
+		return stats;
+	}
+}
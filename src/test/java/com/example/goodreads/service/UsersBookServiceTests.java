@@ -0,0 +1,131 @@
+package com.example.goodreads.service;
+
+import com.example.goodreads.TestData;
+import com.example.goodreads.dto.CursorPage;
+import com.example.goodreads.model.Book;
+import com.example.goodreads.model.UsersBook;
+import com.example.goodreads.repository.BookStatsRepository;
+import com.example.goodreads.repository.UsersBookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static com.example.goodreads.TestData.book;
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class UsersBookServiceTests {
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private UsersBookService usersBookService;
+
+	@Autowired
+	private BookStatsRepository bookStatsRepository;
+
+	@Autowired
+	private UsersBookRepository usersBookRepository;
+
+	@Autowired
+	private TestData testData;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	private final List<Book> books = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		testData.clear();
+
+		books.clear();
+		for (int i = 0; i < 5; i++) {
+			Book book = book("Książka " + i);
+			books.add(bookService.addBook(book));
+		}
+	}
+
+	@Test
+	void unreadBooksAreTheCatalogMinusStoredEntries() {
+		usersBookService.changeStatusForBook("anna", books.get(1).getId(), UsersBook.Status.READED);
+		usersBookService.changeStatusForBook("anna", books.get(3).getId(), UsersBook.Status.WANT_READ);
+
+		CursorPage<UsersBook> first = usersBookService.getUnreadBooks("anna", null, 2);
+		CursorPage<UsersBook> second = usersBookService.getUnreadBooks("anna", first.getNextCursor(), 2);
+
+		assertThat(first.getItems()).extracting(usersBook -> usersBook.getBook().getId())
+				.containsExactly(books.get(0).getId(), books.get(2).getId());
+		assertThat(second.getItems()).extracting(usersBook -> usersBook.getBook().getId())
+				.containsExactly(books.get(4).getId());
+		assertThat(second.getNextCursor()).isNull();
+		assertThat(usersBookService.getUnreadBooks("jan", null, 10).getItems()).hasSize(5);
+		assertThat(usersBookRepository.count()).isEqualTo(2L);
+	}
+
+	@Test
+	void shelfPagesTheCatalogWithStoredEntriesInPlace() {
+		usersBookService.changeStatusForBook("anna", books.get(1).getId(), UsersBook.Status.READED);
+
+		CursorPage<UsersBook> first = usersBookService.getShelf("anna", null, 3);
+		CursorPage<UsersBook> second = usersBookService.getShelf("anna", first.getNextCursor(), 3);
+
+		assertThat(first.getItems()).extracting(UsersBook::getBookId)
+				.containsExactly(books.get(0).getId(), books.get(1).getId(), books.get(2).getId());
+		assertThat(first.getItems()).extracting(UsersBook::getStatus)
+				.containsExactly(UsersBook.Status.UNREAD, UsersBook.Status.READED, UsersBook.Status.UNREAD);
+		assertThat(first.getItems().get(1).getId()).isNotNull();
+		assertThat(second.getItems()).extracting(UsersBook::getBookId)
+				.containsExactly(books.get(3).getId(), books.get(4).getId());
+		assertThat(second.getNextCursor()).isNull();
+	}
+
+	@Test
+	void concurrentFirstWriteOfTheSameBookBecomesAnUpdate() throws Exception {
+		Long bookId = books.get(0).getId();
+		CountDownLatch inserted = new CountDownLatch(1);
+
+		// Pierwszy zapis trzyma niezatwierdzony wiersz, aż drugi dojdzie do własnego INSERT-u
+		Thread first = new Thread(() -> transactionTemplate.executeWithoutResult(status -> {
+			usersBookService.changeStatusForBook("anna", bookId, UsersBook.Status.WANT_READ);
+			inserted.countDown();
+			try {
+				Thread.sleep(300);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}));
+		first.start();
+		inserted.await();
+
+		UsersBook saved = usersBookService.changeStatusForBook("anna", bookId, UsersBook.Status.READED);
+		first.join();
+
+		assertThat(saved.getStatus()).isEqualTo(UsersBook.Status.READED);
+		assertThat(usersBookRepository.findByUsername("anna")).singleElement()
+				.satisfies(usersBook -> assertThat(usersBook.getStatus()).isEqualTo(UsersBook.Status.READED));
+	}
+
+	@Test
+	void settingDefaultStatusRemovesTheStoredEntry() {
+		Long bookId = books.get(0).getId();
+		usersBookService.changeStatusForBook("anna", bookId, UsersBook.Status.READED);
+		usersBookService.changeStatusForBook("jan", bookId, UsersBook.Status.WANT_READ);
+		usersBookService.changeStatusForBook("anna", bookId, UsersBook.Status.UNREAD);
+
+		assertThat(usersBookRepository.findByUsername("anna")).isEmpty();
+		assertThat(bookStatsRepository.findById(bookId)).hasValueSatisfying(stats -> {
+			assertThat(stats.getReaderCount()).isEqualTo(1L);
+			assertThat(stats.getReadCount()).isZero();
+		});
+	}
+}